@@ -1,9 +1,18 @@
 package amazons;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static java.lang.Math.*;
 
 import static amazons.Piece.*;
-import java.util.Iterator;
 
 /** A Player that automatically generates moves.
  *  @author Yuan Xie.
@@ -19,131 +28,783 @@ class AI extends Player {
     /** A new AI with no piece or controller (intended to produce
      *  a template). */
     AI() {
-        this(null, null);
+        this(TranspositionTable.DEFAULT_MB, false);
+    }
+
+    /** A new AI template whose players use a transposition table of
+     *  HASHMB megabytes, allocated off-heap iff OFFHEAP. */
+    AI(int hashMB, boolean offHeap) {
+        super(null, null);
+        _hashMB = hashMB;
+        _offHeap = offHeap;
+        _threads = 1;
     }
 
-    /** A new AI playing PIECE under control of CONTROLLER. */
-    AI(Piece piece, Controller controller) {
+    /** A new AI playing PIECE under control of CONTROLLER, with the same
+     *  settings as TEMPLATE. */
+    private AI(AI template, Piece piece, Controller controller) {
         super(piece, controller);
+        _hashMB = template._hashMB;
+        _offHeap = template._offHeap;
+        _threads = template._searchPool == null ? template._threads : 1;
+        _fixedDepth = template._fixedDepth;
+        _solverEmpty = template._solverEmpty;
+        _ordering = template._ordering;
+        _pondering = template._pondering;
+        _searchPool = template._searchPool;
     }
 
     @Override
     Player create(Piece piece, Controller controller) {
-        return new AI(piece, controller);
+        return new AI(this, piece, controller);
+    }
+
+    /** Search with THREADS threads (at least 1), unless I have a search
+     *  pool (see setSearchPool). */
+    void setThreads(int threads) {
+        _threads = max(1, threads);
+    }
+
+    /** If DEPTH > 0, search every move to exactly DEPTH levels,
+     *  ignoring the clock, starting each search with an empty
+     *  transposition table.  The move found then depends only on the
+     *  position, and not on the number of threads or on timing.  If
+     *  DEPTH is 0, search under the clock (the default). */
+    void setFixedDepth(int depth) {
+        _fixedDepth = max(0, depth);
+    }
+
+    /** Try to solve positions exactly with a PNSolver once they have
+     *  at most EMPTY empty squares (never, if EMPTY is 0).  If the solver
+     *  cannot prove a win for me within its budget, or proves a loss, I
+     *  search as usual. */
+    void setSolverThreshold(int empty) {
+        _solverEmpty = max(0, empty);
+    }
+
+    /** Order moves at each search node (killer moves, history and static
+     *  scores) iff ORDERING (the default).  Without ordering, moves are
+     *  searched in generation order, apart from the best move of the
+     *  previous iteration at the root. */
+    void setMoveOrdering(boolean ordering) {
+        _ordering = ordering;
+    }
+
+    /** Return the statistics of my most recent search, or null if I have
+     *  not searched. */
+    SearchStats searchStats() {
+        return _stats;
     }
 
     @Override
     String myMove() {
-        Move move = findMove();
-        _controller.reportMove(move);
+        return myMove(board());
+    }
+
+    /** Searches a copy of the board, which my controller may change once
+     *  it stops waiting. */
+    @Override
+    CompletableFuture<String> requestMove(Executor executor) {
+        Board position = new Board(board());
+        return CompletableFuture.supplyAsync(() -> myMove(position),
+                                             executor);
+    }
+
+    /** Return my move from POSITION, in which it is my turn, reporting
+     *  it (and pondering on it) unless my choice has been abandoned. */
+    private String myMove(Board position) {
+        Move move = runSearch(() -> findMove(position));
+        report(() -> {
+            if (_pondering && _fixedDepth == 0 && _searchPool == null) {
+                startPondering(position, move.pack());
+            }
+            _controller.reportMove(move);
+        });
         return move.toString();
     }
 
-    /** Return a move for me from the current position, assuming there
-     *  is a move. */
-    private Move findMove() {
-        Board b = new Board(board());
-        if (_myPiece == WHITE) {
-            findMove(b, maxDepth(b), true, 1, -INFTY, INFTY);
-        } else {
-            findMove(b, maxDepth(b), true, -1, -INFTY, INFTY);
-        }
-        return _lastFoundMove;
-    }
-
-    /** The move found by the last call to one of the ...FindMove methods
-     *  below. */
-    private Move _lastFoundMove;
-
-    /** Find a move from position BOARD and return its value, recording
-     *  the move found in _lastFoundMove iff SAVEMOVE. The move
-     *  should have maximal value or have value > BETA if SENSE==1,
-     *  and minimal value or value < ALPHA if SENSE==-1. Searches up to
-     *  DEPTH levels.  Searching at level 0 simply returns a static estimate
-     *  of the board value and does not set _lastMoveFound. */
-    private int findMove(Board board, int depth, boolean saveMove, int sense,
-                         int alpha, int beta) {
-        if (depth == 0 || board.winner() != null) {
-            return staticScore(board);
-        }
-
-        if (sense == 1) {
-            Iterator<Move> a = board.legalMoves(WHITE);
-            int maxValue = alpha;
-            Move c = a.next();
-            while (c != null) {
-                Board newBoard = new Board();
-                newBoard.copy(board);
-                newBoard.makeMove(c.from(), c.to(), c.spear());
-                maxValue = findMove(newBoard, depth - 1, false,
-                        -1, alpha, beta);
-                if (maxValue >= alpha && saveMove) {
-                    _lastFoundMove = c;
+    @Override
+    void moveMade(Move move) {
+        Board board = board();
+        if (_ponderThread != null && board.turn() == _myPiece
+            && (board.hash() != _ponderHash
+                || !board.hasLegalMove(_myPiece))) {
+            stopPondering();
+        }
+    }
+
+    /** Return a move for me from MODEL, which is unchanged, assuming
+     *  that it is my turn and that there is a move.  Searches by
+     *  iterative deepening until the time allotted to this move runs
+     *  out, and returns the best move of the deepest search that
+     *  completed.  With no clock at all, searches UNTIMED_DEPTH levels
+     *  instead.  If I have been pondering MODEL, continues from the
+     *  deepest iteration the ponder search completed.  Once the board
+     *  is partitioned (see Regions), nothing either side does can
+     *  affect the other, so simply returns a move that fills my
+     *  regions efficiently.  With few enough empty squares, first tries
+     *  to prove a win with a PNSolver, using up to half the time
+     *  allotted. */
+    Move findMove(Board model) {
+        return findMove(model, _fixedDepth > 0 ? UNLIMITED : -1,
+                        _fixedDepth);
+    }
+
+    /** Return a move for me from MODEL as for findMove(MODEL), but
+     *  searching for at most BUDGET nanoseconds (or for the time
+     *  allotted by my controller, if BUDGET is negative) and at most
+     *  DEPTH levels (if DEPTH > 0).  Unlike setFixedDepth, a DEPTH
+     *  limit keeps my transposition table.  The search also ends soon
+     *  after a call to stop. */
+    Move findMove(Board model, long budget, int depth) {
+        boolean ponderHit =
+            _ponderThread != null && model.hash() == _ponderHash;
+        stopPondering();
+        long start = System.nanoTime();
+        if (budget < 0) {
+            budget = timeBudget(model);
+            if (budget >= UNLIMITED && depth <= 0) {
+                depth = UNTIMED_DEPTH;
+            }
+        }
+        RegionsEvent regionsEvent = new RegionsEvent();
+        regionsEvent.begin();
+        Regions regions = model.regions();
+        regionsEvent.end();
+        if (regionsEvent.shouldCommit()) {
+            regionsEvent.empty = model.numEmpty();
+            regionsEvent.regions = regions.count();
+            regionsEvent.partitioned = regions.partitioned();
+            regionsEvent.commit();
+        }
+        if (regions.partitioned()) {
+            int fill = regions.fillingMove(_myPiece);
+            if (fill != 0) {
+                return Move.mv(fill);
+            }
+        }
+        if (model.numEmpty() <= _solverEmpty) {
+            if (_solver == null) {
+                _solver = new PNSolver(PNSolver.DEFAULT_MB);
+            }
+            if (_solver.solve(model, start + budget / 2) == _myPiece
+                && _solver.bestMove() != 0) {
+                return Move.mv(_solver.bestMove());
+            }
+        }
+
+        int n = prepareSearch(model);
+        int limit = maxDepth(model);
+        if (_fixedDepth > 0) {
+            _table.clear();
+        }
+        if (depth > 0) {
+            limit = min(limit, depth);
+        }
+        _deadline = start + budget;
+        _stop = false;
+        int best = n > 0 ? _rootMoves[0] : 0;
+        int completed = 0;
+        if (ponderHit && _ponderDepth > 0) {
+            best = _ponderBest;
+            completed = _ponderDepth;
+        }
+        deepen(n, best, completed, limit, start, budget);
+        recordStats(_deepenDepth, start);
+        return Move.mv(_deepenBest);
+    }
+
+    /** Prepare my tables and search threads to search from MODEL, in
+     *  which it is my turn, and return the number of legal moves, which
+     *  are left in _rootMoves in the order to try them. */
+    private int prepareSearch(Board model) {
+        if (_table == null) {
+            _table = new TranspositionTable(_hashMB, _offHeap);
+            _rootMoves = new int[Board.MAX_MOVES];
+            _stats = new SearchStats(MAX_DEPTH);
+        }
+        _stats.clear();
+        if (_searches == null || _searches.length != _threads) {
+            _searches = new Search[_threads];
+            for (int k = 0; k < _threads; k += 1) {
+                _searches[k] = new Search();
+            }
+        }
+        for (Search search : _searches) {
+            search.reset(model, _fixedDepth > 0);
+        }
+        int n = model.legalMoves(_myPiece, _rootMoves);
+        if (_ordering) {
+            _searches[0]._orderer.order(model, _rootMoves, n, 0, 0);
+        }
+        return n;
+    }
+
+    /** Search the first N moves of _rootMoves by iterative deepening
+     *  from depth COMPLETED + 1 (where BEST is the best move found by
+     *  the iterations to depth COMPLETED, if any) up to depth LIMIT,
+     *  stopping early if the search is stopped or finds a win, or once
+     *  half of BUDGET nanoseconds have passed since START.  Leaves the
+     *  best move of the deepest completed iteration in _deepenBest and
+     *  that depth in _deepenDepth. */
+    private void deepen(int n, int best, int completed, int limit,
+                        long start, long budget) {
+        _deepenBest = best;
+        _deepenDepth = completed;
+        for (int depth = completed + 1; depth <= limit; depth += 1) {
+            long iterationStart = System.nanoTime();
+            SearchIterationEvent event = new SearchIterationEvent();
+            long nodes = event.isEnabled() ? searchNodes() : 0;
+            event.begin();
+            hashMoveFirst(_rootMoves, n, _deepenBest);
+            searchRoot(depth, n);
+            event.end();
+            if (event.shouldCommit()) {
+                event.side = _myPiece.toString();
+                event.depth = depth;
+                event.score = _rootBestValue;
+                event.nodes = searchNodes() - nodes;
+                event.stopped = _stop;
+                event.commit();
+            }
+            if (_stop) {
+                if (_deepenDepth == 0 && _rootBestIndex >= 0) {
+                    _deepenBest = _rootMoves[_rootBestIndex];
                 }
-                if (alpha > maxValue) {
-                    alpha = maxValue;
+                break;
+            }
+            _deepenBest = _rootMoves[_rootBestIndex];
+            _deepenDepth = depth;
+            _stats.iteration(depth, System.nanoTime() - iterationStart);
+            _stats.setScore(_rootBestValue);
+            reportProgress(depth, start);
+            if (abs(_rootBestValue) >= WINNING_VALUE
+                || System.nanoTime() - start > budget / 2) {
+                break;
+            }
+        }
+    }
+
+    /** If I can predict my opponent's reply to my move MOVE (packed) on
+     *  MODEL, which is unchanged, start searching the position after
+     *  that reply on a background thread, so that if the opponent does
+     *  play it, my next search can continue from where this one has
+     *  got to.  Either way, my transposition table and move ordering
+     *  stay warm.  The prediction is the best reply recorded in my
+     *  transposition table. */
+    private void startPondering(Board model, int move) {
+        Board position = new Board(model);
+        position.makeSearchMove(move);
+        Piece opponent = _myPiece.opponent();
+        if (_table == null || !position.hasLegalMove(opponent)
+            || position.regions().partitioned()) {
+            return;
+        }
+        long entry = _table.probe(position.hash());
+        int reply = entry == TranspositionTable.MISS ? 0
+            : TranspositionTable.move(entry);
+        if (reply == 0 || !position.isLegal(Move.mv(reply))) {
+            return;
+        }
+        position.makeSearchMove(reply);
+        if (!position.hasLegalMove(_myPiece)
+            || position.regions().partitioned()
+            || position.numEmpty() <= _solverEmpty) {
+            return;
+        }
+        long moveLimit = _controller.moveTimeLimit();
+        _deadline = System.nanoTime()
+            + (moveLimit > 0 ? moveLimit : MAX_PONDER_TIME)
+            * Utils.NANOS_PER_MILLI;
+        _stop = false;
+        _ponderHash = position.hash();
+        _ponderDepth = 0;
+        Board ponderPosition = new Board(position);
+        _ponderThread = new Thread(() -> ponder(ponderPosition),
+                                   "amazons-ponder");
+        _ponderThread.setDaemon(true);
+        _ponderThread.start();
+    }
+
+    /** Search POSITION, in which it is my turn, until stopped or until
+     *  _deadline, recording the deepest completed iteration in
+     *  _ponderDepth and its best move in _ponderBest.  Runs on my
+     *  ponder thread. */
+    private void ponder(Board position) {
+        int n = prepareSearch(position);
+        if (n == 0) {
+            return;
+        }
+        deepen(n, _rootMoves[0], 0, maxDepth(position),
+               System.nanoTime(), UNLIMITED);
+        _ponderDepth = _deepenDepth;
+        _ponderBest = _deepenBest;
+    }
+
+    /** Stop my ponder search, if any, and wait for it to finish. */
+    private void stopPondering() {
+        if (_ponderThread == null) {
+            return;
+        }
+        _stop = true;
+        try {
+            _ponderThread.join();
+        } catch (InterruptedException excp) {
+            throw new IllegalStateException(excp);
+        }
+        _ponderThread = null;
+    }
+
+    /** Stop my current search (if any) as soon as possible.  A stop
+     *  that comes before the search has begun is ignored. */
+    void stop() {
+        _stop = true;
+    }
+
+    @Override
+    void cancelMove() {
+        stop();
+    }
+
+    /** Ponder (see startPondering) after each of my moves iff PONDERING.
+     *  Has no effect in fixed-depth mode (see setFixedDepth), or with a
+     *  search pool (see setSearchPool), which pondering would escape. */
+    void setPondering(boolean pondering) {
+        _pondering = pondering;
+    }
+
+    /** Return the number of nodes searched so far in the current search
+     *  by all my threads. */
+    private long searchNodes() {
+        long nodes = 0;
+        for (Search search : _searches) {
+            nodes += search._stats.nodes();
+        }
+        return nodes;
+    }
+
+    /** Pass the statistics so far of the search started at time START,
+     *  which has just completed DEPTH levels, to my controller, if any,
+     *  unless I am pondering. */
+    private void reportProgress(int depth, long start) {
+        if (_controller == null || Thread.currentThread() == _ponderThread) {
+            return;
+        }
+        SearchStats progress = new SearchStats(MAX_DEPTH);
+        for (Search search : _searches) {
+            progress.add(search._stats);
+        }
+        progress.finish(depth, System.nanoTime() - start);
+        progress.setScore(_rootBestValue);
+        report(() -> _controller.reportIteration(_myPiece, progress));
+    }
+
+    /** Merge the statistics of my search threads into _stats, for a
+     *  search that was started at time START and completed DEPTH
+     *  levels, and pass them to my controller, if any. */
+    private void recordStats(int depth, long start) {
+        for (Search search : _searches) {
+            _stats.add(search._stats);
+        }
+        _stats.finish(depth, System.nanoTime() - start);
+        if (_controller != null) {
+            report(() -> _controller.reportSearchInfo(_myPiece, _stats));
+        }
+    }
+
+    /** Search the first N moves of _rootMoves to DEPTH levels, leaving
+     *  the index of the best in _rootBestIndex (-1 if none completed)
+     *  and its value in _rootBestValue.  The first move is searched
+     *  alone; once it has established a bound, the remaining moves are
+     *  shared among all my threads.  Ties go to the earliest move in
+     *  _rootMoves, so the result does not depend on which thread
+     *  finishes first. */
+    private void searchRoot(int depth, int n) {
+        _rootBestIndex = -1;
+        _rootBestValue = _myPiece == WHITE ? -INFTY : INFTY;
+        if (n == 0) {
+            return;
+        }
+        _searches[0].searchRootMove(depth, 0);
+        _rootNext.set(1);
+        if (_threads == 1 || n == 1) {
+            _searches[0].searchRootMoves(depth, n);
+            return;
+        }
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int k = 1; k < _threads; k += 1) {
+            Search search = _searches[k];
+            tasks.add(() -> {
+                search.searchRootMoves(depth, n);
+                return null;
+            });
+        }
+        List<Future<Void>> helpers = new ArrayList<>();
+        for (Callable<Void> task : tasks) {
+            helpers.add(pool().submit(task));
+        }
+        _searches[0].searchRootMoves(depth, n);
+        try {
+            for (Future<Void> helper : helpers) {
+                helper.get();
+            }
+        } catch (InterruptedException excp) {
+            _stop = true;
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException excp) {
+            throw new IllegalStateException(excp.getCause());
+        }
+    }
+
+    /** Return the current bound for root moves: the value of the best
+     *  root move found so far in this iteration. */
+    private synchronized int rootBound() {
+        return _rootBestValue;
+    }
+
+    /** Return the index of the best root move found so far. */
+    private synchronized int rootBestIndex() {
+        return _rootBestIndex;
+    }
+
+    /** Record that root move number INDEX has exact value VALUE, if that
+     *  makes it the best so far. */
+    private synchronized void offerRoot(int index, int value) {
+        int sense = _myPiece == WHITE ? 1 : -1;
+        if (_rootBestIndex < 0 || sense * value > sense * _rootBestValue
+            || (value == _rootBestValue && index < _rootBestIndex)) {
+            _rootBestValue = value;
+            _rootBestIndex = index;
+        }
+    }
+
+    /** Return the thread pool used for my helper threads, creating it
+     *  if necessary. */
+    private ThreadPoolExecutor pool() {
+        if (_pool == null) {
+            _pool = Utils.fixedPool("amazons-search", _threads - 1);
+        }
+        return _pool;
+    }
+
+    /** The number of search nodes between checks of the clock. */
+    private static final int CLOCK_CHECK_INTERVAL = 1024;
+
+    /** The value of System.nanoTime() at which the current search must
+     *  stop. */
+    private long _deadline;
+
+    /** True when the current search has run out of time and is
+     *  unwinding. */
+    private volatile boolean _stop;
+
+    /** The legal moves from the root position, best first. */
+    private int[] _rootMoves;
+
+    /** The index of the next root move to be claimed by a thread. */
+    private final AtomicInteger _rootNext = new AtomicInteger();
+
+    /** The index in _rootMoves of the best root move found so far in the
+     *  current iteration, or -1 if none. */
+    private int _rootBestIndex;
+
+    /** The value of the root move at _rootBestIndex. */
+    private int _rootBestValue;
+
+    /** The state of one thread of search: its own copy of the board and
+     *  move buffers, sharing the transposition table with the others. */
+    private class Search {
+
+        /** Prepare to search from a copy of MODEL, forgetting all move
+         *  ordering history iff FRESH. */
+        void reset(Board model, boolean fresh) {
+            _board.copy(model);
+            _stats.clear();
+            if (fresh) {
+                _orderer.clear();
+            } else {
+                _orderer.age();
+            }
+        }
+
+        /** Repeatedly claim the next unsearched root move with index less
+         *  than N, and search it to DEPTH levels, until there are none
+         *  left or the search is stopped. */
+        void searchRootMoves(int depth, int n) {
+            while (!_stop) {
+                int index = _rootNext.getAndIncrement();
+                if (index >= n) {
+                    return;
                 }
-                if (alpha >= beta) {
+                searchRootMove(depth, index);
+            }
+        }
+
+        /** Search root move number INDEX to DEPTH levels and offer its
+         *  value as the best root move.  The search uses the value of
+         *  the best move so far as a bound, and so proves only that a
+         *  move that fails to beat it is no better.  Since ties go to
+         *  the earliest move, a move that exactly ties the bound and
+         *  comes before the current best is searched again with a
+         *  slightly wider bound to learn whether its value is exact. */
+        void searchRootMove(int depth, int index) {
+            int sense = _myPiece == WHITE ? 1 : -1;
+            int bound = rootBound();
+            _rootDepth = depth;
+            int value = searchChild(index, depth, sense, bound);
+            if (_stop) {
+                return;
+            }
+            if (sense * value > sense * bound) {
+                offerRoot(index, value);
+            } else if (value == bound && index < rootBestIndex()) {
+                value = searchChild(index, depth, sense, bound - sense);
+                if (!_stop && value == bound) {
+                    offerRoot(index, value);
+                }
+            }
+        }
+
+        /** Return the value of root move number INDEX searched to DEPTH
+         *  levels for a player with sense SENSE, proving only whether it
+         *  is better than BOUND. */
+        private int searchChild(int index, int depth, int sense, int bound) {
+            int alpha = sense == 1 ? bound : -INFTY,
+                beta = sense == 1 ? INFTY : bound;
+            _board.makeSearchMove(_rootMoves[index]);
+            int value = findMove(depth - 1, -sense, alpha, beta);
+            _board.unmakeSearchMove();
+            return value;
+        }
+
+        /** Return the move buffer for searches with DEPTH levels
+         *  remaining. */
+        private int[] moveBuffer(int depth) {
+            if (_moveBuffers[depth] == null) {
+                _moveBuffers[depth] = new int[Board.MAX_MOVES];
+            }
+            return _moveBuffers[depth];
+        }
+
+        /** Find a move from my board and return its value. The move
+         *  should have maximal value or have value > BETA if SENSE==1,
+         *  and minimal value or value < ALPHA if SENSE==-1. Searches up
+         *  to DEPTH levels.  Searching at level 0 simply returns a static
+         *  estimate of the board value.  Moves are made and unmade on the
+         *  board in place, so that it is unchanged on return.  Results
+         *  are cached in the transposition table; a value <= ALPHA is
+         *  only an upper bound on the true value, and a value >= BETA
+         *  only a lower bound.  If the search runs past its deadline,
+         *  sets _stop and returns a meaningless value. */
+        private int findMove(int depth, int sense, int alpha, int beta) {
+            Board board = _board;
+            int ply = _rootDepth - depth;
+            _stats.node(ply);
+            if (_stats.nodes() % CLOCK_CHECK_INTERVAL == 0
+                && System.nanoTime() - _deadline > 0) {
+                _stop = true;
+            }
+            if (_stop) {
+                return 0;
+            }
+            if (depth == 0 || board.decidedWinner() != null) {
+                _stats.evaluation();
+                return staticScore(board, _evaluator);
+            }
+
+            long key = board.hash();
+            long entry = _table.probe(key);
+            _stats.probe(entry != TranspositionTable.MISS);
+            int hashMove = 0;
+            if (entry != TranspositionTable.MISS) {
+                hashMove = TranspositionTable.move(entry);
+            }
+            if (entry != TranspositionTable.MISS
+                && TranspositionTable.depth(entry) >= depth) {
+                int score = TranspositionTable.score(entry);
+                switch (TranspositionTable.bound(entry)) {
+                case TranspositionTable.EXACT:
+                    return score;
+                case TranspositionTable.LOWER:
+                    alpha = max(alpha, score);
+                    break;
+                default:
+                    beta = min(beta, score);
                     break;
                 }
-                c = a.next();
-            }
-            return maxValue;
-        } else {
-            Iterator<Move> a = board.legalMoves(BLACK);
-            int minValue = beta;
-            Move c = a.next();
-            while (c != null) {
-                Board newBoard = new Board();
-                newBoard.copy(board);
-                newBoard.makeMove(c.from(), c.to(), c.spear());
-                minValue = findMove(newBoard, depth - 1, false, 1, alpha, beta);
-                if (beta >= minValue && saveMove) {
-                    _lastFoundMove = c;
+                if (alpha >= beta) {
+                    return score;
                 }
-                if (beta > minValue) {
-                    beta = minValue;
+            }
+
+            int alpha0 = alpha, beta0 = beta;
+            int[] moves = moveBuffer(depth);
+            int n = board.legalMoves(sense == 1 ? WHITE : BLACK, moves);
+            if (_ordering) {
+                _orderer.order(board, moves, n, hashMove, ply);
+            } else if (hashMove != 0) {
+                hashMoveFirst(moves, n, hashMove);
+            }
+            int bestValue = sense == 1 ? -INFTY : INFTY;
+            int bestMove = 0;
+            for (int i = 0; i < n; i += 1) {
+                int c = moves[i];
+                board.makeSearchMove(c);
+                int value = findMove(depth - 1, -sense, alpha, beta);
+                board.unmakeSearchMove();
+                if (_stop) {
+                    return 0;
+                }
+                if (sense == 1 ? value > bestValue : value < bestValue) {
+                    bestValue = value;
+                    bestMove = c;
+                }
+                if (sense == 1) {
+                    alpha = max(alpha, value);
+                } else {
+                    beta = min(beta, value);
                 }
                 if (alpha >= beta) {
+                    _stats.cutoff(i == 0);
+                    if (_ordering) {
+                        _orderer.cutoff(c, depth, ply);
+                    }
                     break;
                 }
-                c = a.next();
             }
-            return minValue;
+
+            int bound;
+            if (bestValue <= alpha0) {
+                bound = TranspositionTable.UPPER;
+            } else if (bestValue >= beta0) {
+                bound = TranspositionTable.LOWER;
+            } else {
+                bound = TranspositionTable.EXACT;
+            }
+            _table.store(key, depth, bound, bestValue, bestMove);
+            _stats.store();
+            return bestValue;
         }
+
+        /** The board searched by this thread. */
+        private final Board _board = new Board();
+
+        /** This thread's static evaluator. */
+        private final Evaluator _evaluator = new Evaluator();
+
+        /** Move buffers, indexed by remaining depth, so that each level
+         *  of the search reuses one buffer. */
+        private final int[][] _moveBuffers = new int[MAX_DEPTH + 1][];
+
+        /** This thread's move orderer. */
+        private final MoveOrderer _orderer = new MoveOrderer(MAX_DEPTH);
+
+        /** Statistics of this thread's part of the current search. */
+        private final SearchStats _stats = new SearchStats(MAX_DEPTH);
+
+        /** The depth of the root move being searched, so that a node with
+         *  depth d remaining is at ply _rootDepth - d. */
+        private int _rootDepth;
     }
 
-    /** Return a heuristically determined maximum search depth
-     *  based on characteristics of BOARD. */
-    private int maxDepth(Board board) {
-        int N = board.numMoves();
-        if (N < (4 * 10)) {
-            return 1;
-        } else if (N < (7 * 10)) {
-            return 2;
-        } else {
-            return 3;
+    /** Move MOVE, if it is among the first N entries of MOVES, to the
+     *  front, so that the best move of a previous search is tried
+     *  first. */
+    private void hashMoveFirst(int[] moves, int n, int move) {
+        for (int i = 0; i < n; i += 1) {
+            if (moves[i] == move) {
+                System.arraycopy(moves, 0, moves, 1, i);
+                moves[0] = move;
+                return;
+            }
         }
     }
 
+    /** Return the greatest depth worth searching from BOARD: the game
+     *  must end before every empty square is filled. */
+    private int maxDepth(Board board) {
+        return min(MAX_DEPTH, board.numEmpty());
+    }
+
+    /** The greatest depth searched by iterative deepening. */
+    private static final int MAX_DEPTH = 64;
 
-    /** Return a heuristic value for BOARD. */
-    private int staticScore(Board board) {
-        Piece winner = board.winner();
+    /** The depth searched when my controller sets no time limits, which
+     *  keeps untimed games (such as scripted tests) fast. */
+    private static final int UNTIMED_DEPTH = 2;
+
+    /** Size of my transposition table in megabytes. */
+    private final int _hashMB;
+
+    /** True iff my transposition table is allocated off-heap. */
+    private final boolean _offHeap;
+
+    /** The number of threads I search with. */
+    private int _threads;
+
+    /** If positive, the fixed depth of every search (see
+     *  setFixedDepth). */
+    private int _fixedDepth;
+
+    /** Positions with at most this many empty squares are given to my
+     *  solver first (see setSolverThreshold). */
+    private int _solverEmpty = DEFAULT_SOLVER_EMPTY;
+
+    /** My endgame solver, created when first needed. */
+    private PNSolver _solver;
+
+    /** The default for _solverEmpty. */
+    static final int DEFAULT_SOLVER_EMPTY = 24;
+
+    /** True iff I ponder after each move. */
+    private boolean _pondering;
+
+    /** The thread running my ponder search, or null if none. */
+    private Thread _ponderThread;
+
+    /** The hash of the position my ponder search started from. */
+    private long _ponderHash;
+
+    /** The depth completed by my last ponder search (0 if none), and
+     *  the best move it found.  Written by the ponder thread, and read
+     *  only after it has finished. */
+    private int _ponderDepth, _ponderBest;
+
+    /** The results of the last call of deepen: the best move, and the
+     *  depth of the iteration that found it. */
+    private int _deepenBest, _deepenDepth;
+
+    /** The longest a ponder search runs, in milliseconds, if there is
+     *  no limit on the time per move. */
+    private static final long MAX_PONDER_TIME = 60000;
+
+    /** True iff moves are ordered at each search node. */
+    private boolean _ordering = true;
+
+    /** The statistics of my most recent search, or null if none. */
+    private SearchStats _stats;
+
+    /** My transposition table, allocated at my first search and kept
+     *  from move to move.  It is shared by all my search threads. */
+    private TranspositionTable _table;
+
+    /** One Search for each of my threads; _searches[0] runs on the thread
+     *  that calls myMove. */
+    private Search[] _searches;
+
+    /** The pool running my helper threads, or null if not yet
+     *  needed. */
+    private ThreadPoolExecutor _pool;
+
+    /** Return a heuristic value for BOARD, using EVALUATOR. */
+    static int staticScore(Board board, Evaluator evaluator) {
+        Piece winner = board.decidedWinner();
         if (winner == BLACK) {
             return -WINNING_VALUE;
         } else if (winner == WHITE) {
             return WINNING_VALUE;
         }
-        int result = 0;
-        Iterator<Move> a = board.legalMoves(WHITE);
-        Move c = a.next();
-        for (int i = 0; c != null; i += 1) {
-            c = a.next();
-            result = i;
-        }
-        return result;
+        return evaluator.evaluate(board);
     }
 
-
 }
@@ -0,0 +1,42 @@
+package amazons;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+/** Tests of the AI class.
+ *  @author Yuan Xie.
+ */
+public class AITest {
+
+    @Test
+    public void testParallelSearch() {
+        Random random = new Random(7);
+        Board b = new Board();
+        int[] moves = new int[Board.MAX_MOVES];
+        for (int position = 0; position < 4; position += 1) {
+            for (int k = 0; k < 16 && b.winner() == null; k += 1) {
+                int n = b.legalMoves(b.turn(), moves);
+                b.makeMove(Move.mv(moves[random.nextInt(n)]));
+            }
+            if (b.winner() != null) {
+                break;
+            }
+            for (int depth = 2; depth <= 3; depth += 1) {
+                assertEquals(search(b, depth, 1), search(b, depth, 4));
+            }
+        }
+    }
+
+    /** Return the move found by a search of BOARD to DEPTH levels on
+     *  THREADS threads. */
+    private Move search(Board board, int depth, int threads) {
+        AI template = new AI();
+        template.setFixedDepth(depth);
+        template.setThreads(threads);
+        return ((AI) template.create(board.turn(), null)).findMove(board);
+    }
+
+}
@@ -0,0 +1,155 @@
+package amazons;
+
+/** Operations on sets of Squares represented as 128-bit bitboards.  A
+ *  set is held as a pair of longs (LO, HI): square index k (0-99) is bit
+ *  k of LO if k < 64, and bit k - 64 of HI otherwise.  Bits of HI above
+ *  square 99 are always zero.  Directions are numbered as for
+ *  Square.queenMove.
+ *  @author Yuan Xie.
+ */
+final class Bitboard {
+
+    /** The number of bits in one word of a bitboard. */
+    static final int WORD = 64;
+
+    /** The low word of the set of all squares. */
+    static final long ALL_LO = -1L;
+
+    /** The high word of the set of all squares. */
+    static final long ALL_HI = (1L << (Board.SIZE * Board.SIZE - WORD)) - 1;
+
+    /** Bitboards are only manipulated through static methods. */
+    private Bitboard() {
+    }
+
+    /** Return the low word of the set containing only square INDEX. */
+    static long bitLo(int index) {
+        return index < WORD ? 1L << index : 0L;
+    }
+
+    /** Return the high word of the set containing only square INDEX. */
+    static long bitHi(int index) {
+        return index < WORD ? 0L : 1L << (index - WORD);
+    }
+
+    /** Return true iff square INDEX is in the set LO, HI. */
+    static boolean contains(long lo, long hi, int index) {
+        if (index < WORD) {
+            return (lo & (1L << index)) != 0;
+        }
+        return (hi & (1L << (index - WORD))) != 0;
+    }
+
+    /** Return the number of squares in the set LO, HI. */
+    static int count(long lo, long hi) {
+        return Long.bitCount(lo) + Long.bitCount(hi);
+    }
+
+    /** Return the low word of the set LO, HI with every square moved one
+     *  step in direction DIR.  Squares that leave the board are dropped. */
+    static long shiftLo(long lo, long hi, int dir) {
+        int delta = DELTA[dir];
+        long result;
+        if (delta > 0) {
+            result = lo << delta;
+        } else {
+            result = (lo >>> -delta) | (hi << (WORD + delta));
+        }
+        return result & WRAP_LO[dir];
+    }
+
+    /** Return the high word of the set LO, HI with every square moved one
+     *  step in direction DIR.  Squares that leave the board are dropped. */
+    static long shiftHi(long lo, long hi, int dir) {
+        int delta = DELTA[dir];
+        long result;
+        if (delta > 0) {
+            result = (hi << delta) | (lo >>> (WORD - delta));
+        } else {
+            result = hi >>> -delta;
+        }
+        return result & WRAP_HI[dir];
+    }
+
+    /** Store into RAY[K] and RAY[K + 1] the low and high words of the
+     *  set of squares reachable from FROM by sliding in direction DIR
+     *  through the squares of the set EMPTYLO, EMPTYHI.  The ray is
+     *  generated by repeated shifting and masking, and stops at the
+     *  first square not in the empty set. */
+    static void ray(int from, int dir, long emptyLo, long emptyHi,
+                    long[] ray, int k) {
+        fill(bitLo(from), bitHi(from), dir, emptyLo, emptyHi, ray, k);
+    }
+
+    /** As for ray, but store into RAY[K] and RAY[K + 1] the union of
+     *  the rays in direction DIR from every square of the set GENLO,
+     *  GENHI. */
+    static void fill(long genLo, long genHi, int dir,
+                     long emptyLo, long emptyHi, long[] ray, int k) {
+        long resultLo = 0, resultHi = 0;
+        while (true) {
+            long nextLo = shiftLo(genLo, genHi, dir) & emptyLo;
+            long nextHi = shiftHi(genLo, genHi, dir) & emptyHi;
+            if ((nextLo | nextHi) == 0) {
+                break;
+            }
+            resultLo |= nextLo;
+            resultHi |= nextHi;
+            genLo = nextLo;
+            genHi = nextHi;
+        }
+        ray[k] = resultLo;
+        ray[k + 1] = resultHi;
+    }
+
+    /** Return the index of the square in the nonempty set LO, HI that
+     *  lies nearest to the origin of a ray in direction DIR (that is,
+     *  the first one reached when sliding in that direction). */
+    static int nearest(long lo, long hi, int dir) {
+        if (DELTA[dir] > 0) {
+            if (lo != 0) {
+                return Long.numberOfTrailingZeros(lo);
+            }
+            return WORD + Long.numberOfTrailingZeros(hi);
+        } else {
+            if (hi != 0) {
+                return 2 * WORD - 1 - Long.numberOfLeadingZeros(hi);
+            }
+            return WORD - 1 - Long.numberOfLeadingZeros(lo);
+        }
+    }
+
+    /** Change in square index for one step in each direction. */
+    static final int[] DELTA = {
+        Board.SIZE, Board.SIZE + 1, 1, 1 - Board.SIZE,
+        -Board.SIZE, -Board.SIZE - 1, -1, Board.SIZE - 1
+    };
+
+    /** Masks (low and high words) applied after a shift in each direction
+     *  to remove squares that wrapped around from one edge of the board
+     *  to the other. */
+    private static final long[] WRAP_LO = new long[8], WRAP_HI = new long[8];
+
+    static {
+        long c0Lo = 0, c0Hi = 0, cnLo = 0, cnHi = 0;
+        for (int row = 0; row < Board.SIZE; row += 1) {
+            c0Lo |= bitLo(row * Board.SIZE);
+            c0Hi |= bitHi(row * Board.SIZE);
+            cnLo |= bitLo(row * Board.SIZE + Board.SIZE - 1);
+            cnHi |= bitHi(row * Board.SIZE + Board.SIZE - 1);
+        }
+        for (int dir = 0; dir < DELTA.length; dir += 1) {
+            int dcol = Math.floorMod(DELTA[dir] + 1, Board.SIZE) - 1;
+            WRAP_LO[dir] = ALL_LO;
+            WRAP_HI[dir] = ALL_HI;
+            if (dcol > 0) {
+                WRAP_LO[dir] &= ~c0Lo;
+                WRAP_HI[dir] &= ~c0Hi;
+            } else if (dcol < 0) {
+                WRAP_LO[dir] &= ~cnLo;
+                WRAP_HI[dir] &= ~cnHi;
+            }
+        }
+    }
+
+}
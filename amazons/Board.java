@@ -1,8 +1,8 @@
 package amazons;
 
 import java.util.Iterator;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.Random;
 
 import static amazons.Piece.*;
 import static amazons.Move.mv;
@@ -16,6 +16,17 @@ class Board {
     /** The number of squares on a side of the board. */
     static final int SIZE = 10;
 
+    /** The most squares a queen can reach on an otherwise empty board. */
+    static final int MAX_QUEEN_MOVES = 4 * (SIZE - 1) - 1;
+
+    /** An upper bound on the number of legal moves in any position, and
+     *  thus a sufficient size for the buffers passed to legalMoves. */
+    static final int MAX_MOVES = 4 * MAX_QUEEN_MOVES * MAX_QUEEN_MOVES;
+
+    /** Seed of the generator for the Zobrist keys (see hash), fixed so
+     *  that keys are the same in every run. */
+    private static final long ZOBRIST_SEED = 0x616d617a6f6e73L;
+
     /** Initializes a game board with SIZE squares on a side in the
      *  initial position. */
     Board() {
@@ -32,35 +43,116 @@ class Board {
         _turn = model._turn;
         _winner = model._winner;
         _numMoves = model._numMoves;
-        _moveList = model._moveList;
-        _board = new Piece[10][10];
-        for (int i = 0; i < 10; i += 1) {
-            for (int j = 0; j < 10; j += 1) {
-                _board[i][j] = model._board[i][j];
-            }
-        }
+        _historyLength = model._historyLength;
+        System.arraycopy(model._history, 0, _history, 0, _historyLength);
+        _searchDepth = 0;
+        _occLo = model._occLo;
+        _occHi = model._occHi;
+        _whiteLo = model._whiteLo;
+        _whiteHi = model._whiteHi;
+        _blackLo = model._blackLo;
+        _blackHi = model._blackHi;
+        _spearLo = model._spearLo;
+        _spearHi = model._spearHi;
+        _hash = model._hash;
+        System.arraycopy(model._reach[0], 0, _reach[0], 0, SIZE * SIZE);
+        System.arraycopy(model._reach[1], 0, _reach[1], 0, SIZE * SIZE);
+        System.arraycopy(model._mobility, 0, _mobility, 0, SIZE * SIZE);
+        System.arraycopy(model._sideMobility, 0, _sideMobility, 0, 2);
     }
 
     /** Clears the board to the initial position. */
     void init() {
-        _turn = WHITE;
+        clear();
+        put(BLACK, Square.sq(3, 9));
+        put(BLACK, Square.sq(6, 9));
+        put(BLACK, Square.sq(0, 6));
+        put(BLACK, Square.sq(9, 6));
+        put(WHITE, Square.sq(0, 3));
+        put(WHITE, Square.sq(9, 3));
+        put(WHITE, Square.sq(3, 0));
+        put(WHITE, Square.sq(6, 0));
         _winner = null;
-        _numMoves = 0;
-        _board = new Piece[SIZE][SIZE];
-        for (int i = 0; i < SIZE; i += 1) {
-            for (int j = 0; j < SIZE; j += 1) {
-                _board[i][j] = EMPTY;
+    }
+
+    /** Set the board to the position described by SQUARES, with TURN
+     *  (WHITE or BLACK) to move and no history.  SQUARES gives the
+     *  contents of each square as W, B, S, or - (see Piece), in the
+     *  order toString prints them (row 10 first, each row from column a
+     *  to j) but without spaces, and must place four amazons of each
+     *  color. */
+    void setPosition(String squares, Piece turn) {
+        if (squares.length() != SIZE * SIZE
+            || (turn != WHITE && turn != BLACK)) {
+            throw Utils.error("bad position");
+        }
+        Piece[] contents = new Piece[SIZE * SIZE];
+        int white = 0, black = 0;
+        for (int k = 0; k < SIZE * SIZE; k += 1) {
+            Piece p;
+            switch (squares.charAt(k)) {
+            case 'W':
+                p = WHITE;
+                white += 1;
+                break;
+            case 'B':
+                p = BLACK;
+                black += 1;
+                break;
+            case 'S':
+                p = SPEAR;
+                break;
+            case '-':
+                p = EMPTY;
+                break;
+            default:
+                throw Utils.error("bad square in position: %c",
+                                  squares.charAt(k));
+            }
+            contents[(SIZE - 1 - k / SIZE) * SIZE + k % SIZE] = p;
+        }
+        if (white != 4 || black != 4) {
+            throw Utils.error("position must have four amazons per side");
+        }
+        clear();
+        for (int k = 0; k < SIZE * SIZE; k += 1) {
+            set(k, contents[k]);
+        }
+        if (turn == BLACK) {
+            _turn = BLACK;
+            _hash ^= SIDE_KEY;
+        }
+        _winner = null;
+    }
+
+    /** Return the position as setPosition describes it, without the side
+     *  to move. */
+    String toPositionString() {
+        StringBuilder result = new StringBuilder();
+        for (int row = SIZE - 1; row >= 0; row -= 1) {
+            for (int col = 0; col < SIZE; col += 1) {
+                result.append(get(col, row));
             }
         }
-        _board[9][3] = BLACK;
-        _board[9][6] = BLACK;
-        _board[6][0] = BLACK;
-        _board[6][9] = BLACK;
-        _board[3][0] = WHITE;
-        _board[3][9] = WHITE;
-        _board[0][3] = WHITE;
-        _board[0][6] = WHITE;
+        return result.toString();
+    }
 
+    /** Empty the board, with White to move and no history. */
+    private void clear() {
+        _turn = WHITE;
+        _winner = null;
+        _numMoves = 0;
+        _historyLength = 0;
+        _searchDepth = 0;
+        _occLo = _occHi = 0;
+        _whiteLo = _whiteHi = 0;
+        _blackLo = _blackHi = 0;
+        _spearLo = _spearHi = 0;
+        _hash = 0;
+        Arrays.fill(_reach[0], (byte) 0);
+        Arrays.fill(_reach[1], (byte) 0);
+        Arrays.fill(_mobility, (byte) 0);
+        Arrays.fill(_sideMobility, 0);
     }
 
     /** Return the Piece whose move it is (WHITE or BLACK). */
@@ -68,17 +160,71 @@ class Board {
         return _turn;
     }
 
+    /** Return the Zobrist key of the current position: the XOR of a
+     *  fixed random key for each (piece, square) pair on the board and,
+     *  if Black is to move, a key for the side to move.  It is maintained
+     *  incrementally by every change to the board. */
+    long hash() {
+        return _hash;
+    }
+
+    /** Return the Zobrist key of the position that would result from
+     *  the legal packed move MOVE, without making it. */
+    long hashAfter(int move) {
+        int from = Move.fromIndex(move);
+        long[] amazon = PIECE_KEYS[get(from).ordinal()];
+        return _hash ^ amazon[from] ^ amazon[Move.toIndex(move)]
+            ^ PIECE_KEYS[SPEAR.ordinal()][Move.spearIndex(move)] ^ SIDE_KEY;
+    }
+
     /** Return the number of moves (that have not been undone) for this
      *  board. */
     int numMoves() {
         return _numMoves;
     }
 
+    /** Return the low word of the bitboard (see Bitboard) of the
+     *  squares holding SIDE's pieces (WHITE, BLACK, or SPEAR), or of the
+     *  empty squares if SIDE is EMPTY. */
+    long piecesLo(Piece side) {
+        switch (side) {
+        case WHITE:
+            return _whiteLo;
+        case BLACK:
+            return _blackLo;
+        case SPEAR:
+            return _spearLo;
+        default:
+            return ~_occLo;
+        }
+    }
+
+    /** Return the high word of the bitboard of the squares holding SIDE's
+     *  pieces (WHITE, BLACK, or SPEAR), or of the empty squares if SIDE is
+     *  EMPTY. */
+    long piecesHi(Piece side) {
+        switch (side) {
+        case WHITE:
+            return _whiteHi;
+        case BLACK:
+            return _blackHi;
+        case SPEAR:
+            return _spearHi;
+        default:
+            return ~_occHi & Bitboard.ALL_HI;
+        }
+    }
+
+    /** Return the number of empty squares.  Since each move fills one
+     *  square, this bounds the number of moves left in the game. */
+    int numEmpty() {
+        return SIZE * SIZE - Bitboard.count(_occLo, _occHi);
+    }
+
     /** Return the winner in the current position, or null if the game is
      *  not yet finished. */
     Piece winner() {
-        Iterator<Move> a = legalMoves();
-        if (a.next() == null) {
+        if (!hasLegalMove(_turn)) {
             if (_turn == WHITE) {
                 return BLACK;
             } else {
@@ -90,15 +236,13 @@ class Board {
 
     /** Return the contents the square at S. */
     final Piece get(Square s) {
-        int col = s.index() % 10;
-        int row = (s.index() / 10) % 10;
-        return _board[row][col];
+        return get(s.index());
     }
 
     /** Return the contents of the square at (COL, ROW), where
      *  0 <= COL, ROW <= 9. */
     final Piece get(int col, int row) {
-        return _board[row][col];
+        return get(row * SIZE + col);
     }
 
     /** Return the contents of the square at COL ROW. */
@@ -106,15 +250,28 @@ class Board {
         return get(col - 'a', row - '1');
     }
 
+    /** Return the contents of the square with index INDEX. */
+    private Piece get(int index) {
+        if (!Bitboard.contains(_occLo, _occHi, index)) {
+            return EMPTY;
+        } else if (Bitboard.contains(_whiteLo, _whiteHi, index)) {
+            return WHITE;
+        } else if (Bitboard.contains(_blackLo, _blackHi, index)) {
+            return BLACK;
+        } else {
+            return SPEAR;
+        }
+    }
+
     /** Set square S to P. */
     final void put(Piece p, Square s) {
-        _board[s.row()][s.col()] = p;
+        set(s.index(), p);
     }
 
     /** Set square (COL, ROW) to P. */
     final void put(Piece p, int col, int row) {
         _winner = EMPTY;
-        _board[row][col] = p;
+        set(row * SIZE + col, p);
     }
 
     /** Set square COL ROW to P. */
@@ -122,25 +279,202 @@ class Board {
         put(p, col - 'a', row - '1');
     }
 
+    /** Set the square with index INDEX to P, updating the bitboards, the
+     *  hash, and the mobility and reach counts. */
+    private void set(int index, Piece p) {
+        Piece old = get(index);
+        if (old == p) {
+            return;
+        }
+        _hash ^= PIECE_KEYS[old.ordinal()][index]
+            ^ PIECE_KEYS[p.ordinal()][index];
+        if (isAmazon(old)) {
+            adjustAmazon(index, old, -1);
+        }
+        if (old == EMPTY) {
+            adjustCrossingRays(index, -1);
+        }
+        long lo = Bitboard.bitLo(index), hi = Bitboard.bitHi(index);
+        _occLo &= ~lo;
+        _occHi &= ~hi;
+        _whiteLo &= ~lo;
+        _whiteHi &= ~hi;
+        _blackLo &= ~lo;
+        _blackHi &= ~hi;
+        _spearLo &= ~lo;
+        _spearHi &= ~hi;
+        switch (p) {
+        case WHITE:
+            _whiteLo |= lo;
+            _whiteHi |= hi;
+            break;
+        case BLACK:
+            _blackLo |= lo;
+            _blackHi |= hi;
+            break;
+        case SPEAR:
+            _spearLo |= lo;
+            _spearHi |= hi;
+            break;
+        default:
+            adjustCrossingRays(index, 1);
+            return;
+        }
+        _occLo |= lo;
+        _occHi |= hi;
+        if (isAmazon(p)) {
+            adjustAmazon(index, p, 1);
+        }
+    }
+
+    /** Add DELTA (1 or -1) to the reach counts of every square that the
+     *  amazon of color SIDE on square INDEX can reach, and correspondingly
+     *  add or remove that amazon's contribution to the mobility counts. */
+    private void adjustAmazon(int index, Piece side, int delta) {
+        byte[] reach = _reach[side.ordinal() - WHITE.ordinal()];
+        Square from = Square.sq(index);
+        int count = 0;
+        for (int dir = 0; dir < 8; dir += 1) {
+            for (Square to : from.ray(dir)) {
+                int k = to.index();
+                if (Bitboard.contains(_occLo, _occHi, k)) {
+                    break;
+                }
+                reach[k] += delta;
+                count += 1;
+            }
+        }
+        setMobility(index, side, delta > 0 ? count : 0);
+    }
+
+    /** Adjust the mobility and reach counts for a change in the occupancy
+     *  of the square with index INDEX: it is about to be filled if DELTA
+     *  is -1, and has just been emptied if DELTA is 1.  Only the amazons
+     *  whose rays pass through INDEX are affected: each loses (or gains)
+     *  INDEX and the empty squares beyond it along the same line. */
+    private void adjustCrossingRays(int index, int delta) {
+        Square sq = Square.sq(index);
+        for (int dir = 0; dir < 8; dir += 1) {
+            int amazon = -1;
+            for (Square s : sq.ray(dir)) {
+                if (Bitboard.contains(_occLo, _occHi, s.index())) {
+                    amazon = s.index();
+                    break;
+                }
+            }
+            if (amazon < 0) {
+                continue;
+            }
+            Piece side = get(amazon);
+            if (side != WHITE && side != BLACK) {
+                continue;
+            }
+            byte[] reach = _reach[side.ordinal() - WHITE.ordinal()];
+            reach[index] += delta;
+            int count = 1;
+            for (Square s : sq.ray((dir + 4) % 8)) {
+                int k = s.index();
+                if (Bitboard.contains(_occLo, _occHi, k)) {
+                    break;
+                }
+                reach[k] += delta;
+                count += 1;
+            }
+            setMobility(amazon, side, _mobility[amazon] + delta * count);
+        }
+    }
+
+    /** Set the recorded mobility of the amazon of color SIDE on square
+     *  INDEX to MOBILITY, keeping the totals for SIDE up to date. */
+    private void setMobility(int index, Piece side, int mobility) {
+        int k = side.ordinal() - WHITE.ordinal();
+        int old = _mobility[index];
+        _sideMobility[k] += mobility - old;
+        _mobility[index] = (byte) mobility;
+    }
+
+    /** Return the number of squares the amazon on S can move to, or 0 if
+     *  there is no amazon on S. */
+    int mobility(Square s) {
+        return isAmazon(get(s)) ? _mobility[s.index()] : 0;
+    }
+
+    /** Return the total number of squares SIDE's amazons can move to. */
+    int mobility(Piece side) {
+        return _sideMobility[side.ordinal() - WHITE.ordinal()];
+    }
+
+    /** Return the number of SIDE's amazons that cannot move. */
+    int numBlocked(Piece side) {
+        long lo = piecesLo(side), hi = piecesHi(side);
+        int result = 0;
+        while ((lo | hi) != 0) {
+            int k = Bitboard.nearest(lo, hi, 0);
+            lo &= ~Bitboard.bitLo(k);
+            hi &= ~Bitboard.bitHi(k);
+            if (_mobility[k] == 0) {
+                result += 1;
+            }
+        }
+        return result;
+    }
+
+    /** Return the number of SIDE's amazons that can reach square S by an
+     *  unblocked queen move. */
+    int reach(Piece side, Square s) {
+        return _reach[side.ordinal() - WHITE.ordinal()][s.index()];
+    }
+
+    /** Return the analysis of the current position into regions (see
+     *  Regions), which is recomputed only when the position changes.
+     *  The result belongs to me and must not be kept past the next
+     *  change. */
+    Regions regions() {
+        if (_regions == null) {
+            _regions = new Regions();
+        }
+        if (!_regions.isAnalysisOf(this)) {
+            _regions.analyze(this);
+        }
+        return _regions;
+    }
+
+    /** Return the side certain to win with best play in the current
+     *  position, or null if that is not yet known.  Unlike winner(),
+     *  this detects games that are decided before they are over: those
+     *  in which the board is partitioned into regions that each hold
+     *  amazons of only one color, and one side clearly has more moves
+     *  left in its regions than the other (see Regions). */
+    Piece decidedWinner() {
+        Piece winner = winner();
+        if (winner != null) {
+            return winner;
+        }
+        return regions().decidedWinner();
+    }
+
+    /** Return true iff P is an amazon (WHITE or BLACK). */
+    private static boolean isAmazon(Piece p) {
+        return p == WHITE || p == BLACK;
+    }
+
     /** Return true iff FROM - TO is an unblocked queen move on the current
      *  board, ignoring the contents of ASEMPTY, if it is encountered.
      *  For this to be true, FROM-TO must be a queen move and the
      *  squares along it, other than FROM and ASEMPTY, must be
      *  empty. ASEMPTY may be null, in which case it has no effect. */
     boolean isUnblockedMove(Square from, Square to, Square asEmpty) {
-        if (!from.isQueenMove(to) || to == null) {
+        if (to == null || !from.isQueenMove(to)) {
             return false;
         }
-        int dir = from.direction(to);
-        int colDiff = Math.abs(to.col() - from.col());
-        int rowDiff = Math.abs(to.row() - from.row());
-        for (int i = 1; i <= Math.max(colDiff, rowDiff); i += 1) {
-            if (this.get(from.queenMove(dir, i)) != EMPTY
-                    && from.queenMove(dir, i) != asEmpty) {
-                return false;
-            }
+        long occLo = _occLo, occHi = _occHi;
+        if (asEmpty != null) {
+            occLo &= ~Bitboard.bitLo(asEmpty.index());
+            occHi &= ~Bitboard.bitHi(asEmpty.index());
         }
-        return true;
+        long pathLo = from.betweenLo(to) | Bitboard.bitLo(to.index()),
+            pathHi = from.betweenHi(to) | Bitboard.bitHi(to.index());
+        return (occLo & pathLo) == 0 && (occHi & pathHi) == 0;
     }
 
     /** Return true iff FROM is a valid starting square for a move. */
@@ -171,17 +505,10 @@ class Board {
 
     /** Move FROM-TO(SPEAR), assuming this is a legal move. */
     void makeMove(Square from, Square to, Square spear) {
-        Piece p = this.get(from);
-        put(EMPTY, from);
-        put(p, to);
-        put(SPEAR, spear);
-        _numMoves += 1;
-        if (_turn == WHITE) {
-            _turn = BLACK;
-        } else {
-            _turn = WHITE;
-        }
-        _moveList.add(mv(from, to, spear));
+        int move = Move.pack(from.index(), to.index(), spear.index());
+        make(move);
+        _history[_historyLength] = move;
+        _historyLength += 1;
     }
 
     /** Move according to MOVE, assuming it is a legal move. */
@@ -191,18 +518,61 @@ class Board {
 
     /** Undo one move.  Has no effect on the initial board. */
     void undo() {
-        if (_numMoves > 0) {
-            _numMoves -= 2;
-            Move mv1 = _moveList.get(_moveList.size() - 1);
-            makeMove(mv1.to(), mv1.from(), mv1.spear());
-            _moveList.remove(_moveList.size() - 1);
-            _moveList.trimToSize();
-            this.put(EMPTY, mv1.spear());
-            _moveList.remove(_moveList.size() - 1);
-            _moveList.trimToSize();
+        if (_numMoves > 0 && _historyLength > 0) {
+            _historyLength -= 1;
+            unmake(_history[_historyLength]);
         }
     }
 
+    /** Return the last move made with makeMove (and not undone), packed
+     *  (see Move.pack), or 0 if there is none. */
+    int lastMove() {
+        return _historyLength == 0 ? 0 : _history[_historyLength - 1];
+    }
+
+    /** Make the packed move MOVE (see Move.pack) in place, assuming it is
+     *  legal, for use during search.  The move is recorded only on a
+     *  private undo stack, not in the game history, so that it can be
+     *  reversed exactly by unmakeSearchMove. */
+    void makeSearchMove(int move) {
+        _searchStack[_searchDepth] = move;
+        _searchDepth += 1;
+        make(move);
+    }
+
+    /** Reverse the last move made by makeSearchMove. */
+    void unmakeSearchMove() {
+        assert _searchDepth > 0;
+        _searchDepth -= 1;
+        unmake(_searchStack[_searchDepth]);
+    }
+
+    /** Apply the packed move MOVE, assuming it is legal, without
+     *  recording it anywhere. */
+    private void make(int move) {
+        int from = Move.fromIndex(move);
+        Piece p = get(from);
+        set(from, EMPTY);
+        set(Move.toIndex(move), p);
+        set(Move.spearIndex(move), SPEAR);
+        _numMoves += 1;
+        _turn = _turn.opponent();
+        _hash ^= SIDE_KEY;
+    }
+
+    /** Reverse the effect of make(MOVE), assuming MOVE was the last move
+     *  applied. */
+    private void unmake(int move) {
+        int to = Move.toIndex(move);
+        Piece p = get(to);
+        set(Move.spearIndex(move), EMPTY);
+        set(to, EMPTY);
+        set(Move.fromIndex(move), p);
+        _numMoves -= 1;
+        _turn = _turn.opponent();
+        _hash ^= SIDE_KEY;
+    }
+
     /** Return an Iterator over the Squares that are reachable by an
      *  unblocked queen move from FROM. Does not pay attention to what
      *  piece (if any) is on FROM, nor to whether the game is finished.
@@ -225,16 +595,96 @@ class Board {
         return new LegalMoveIterator(side);
     }
 
+    /** Store all legal moves on the current board for SIDE (regardless
+     *  of whose turn it is) into MOVES in packed form (see Move.pack),
+     *  and return their number.  MOVES must have room for MAX_MOVES
+     *  entries.  Moves are produced in order of starting square, then
+     *  direction and distance of the piece move, then direction and
+     *  distance of the spear throw. */
+    int legalMoves(Piece side, int[] moves) {
+        return generateMoves(side, moves);
+    }
+
+    /** Return the number of legal moves on the current board for SIDE
+     *  (regardless of whose turn it is). */
+    int numLegalMoves(Piece side) {
+        return generateMoves(side, null);
+    }
+
+    /** Return true iff SIDE has at least one legal move on the current
+     *  board.  Since a spear may always be thrown back to the square an
+     *  amazon just left, this is true iff some amazon of SIDE can move. */
+    boolean hasLegalMove(Piece side) {
+        return mobility(side) > 0;
+    }
+
+    /** Generate the legal moves for SIDE into MOVES as for
+     *  legalMoves(SIDE, MOVES), returning their number.  If MOVES is
+     *  null, only count them.  Each ray is walked once, stopping at the
+     *  first occupied square. */
+    private int generateMoves(Piece side, int[] moves) {
+        long pieceLo, pieceHi;
+        if (side == WHITE) {
+            pieceLo = _whiteLo;
+            pieceHi = _whiteHi;
+        } else if (side == BLACK) {
+            pieceLo = _blackLo;
+            pieceHi = _blackHi;
+        } else {
+            return 0;
+        }
+        int n = 0;
+        while ((pieceLo | pieceHi) != 0) {
+            int start = Bitboard.nearest(pieceLo, pieceHi, 0);
+            pieceLo &= ~Bitboard.bitLo(start);
+            pieceHi &= ~Bitboard.bitHi(start);
+            long occLo = _occLo & ~Bitboard.bitLo(start),
+                occHi = _occHi & ~Bitboard.bitHi(start);
+            Square from = Square.sq(start);
+            for (int dir = 0; dir < 8; dir += 1) {
+                for (Square to : from.ray(dir)) {
+                    if (Bitboard.contains(occLo, occHi, to.index())) {
+                        break;
+                    }
+                    for (int sdir = 0; sdir < 8; sdir += 1) {
+                        for (Square spear : to.ray(sdir)) {
+                            int k = spear.index();
+                            if (Bitboard.contains(occLo, occHi, k)) {
+                                break;
+                            }
+                            if (moves != null) {
+                                moves[n] = Move.pack(start, to.index(), k);
+                            }
+                            n += 1;
+                        }
+                    }
+                }
+            }
+        }
+        return n;
+    }
+
     /** An iterator used by reachableFrom. */
     private class ReachableFromIterator implements Iterator<Square> {
 
         /** Iterator of all squares reachable by queen move from FROM,
-         *  treating ASEMPTY as empty. */
+         *  treating ASEMPTY as empty.  There are no such squares if
+         *  FROM is null. */
         ReachableFromIterator(Square from, Square asEmpty) {
-            _from = from;
-            _dir = -1;
-            _steps = 0;
-            _asEmpty = asEmpty;
+            _dir = 8;
+            if (from == null) {
+                return;
+            }
+            long emptyLo = ~_occLo, emptyHi = ~_occHi & Bitboard.ALL_HI;
+            if (asEmpty != null) {
+                emptyLo |= Bitboard.bitLo(asEmpty.index());
+                emptyHi |= Bitboard.bitHi(asEmpty.index());
+            }
+            for (int dir = 0; dir < 8; dir += 1) {
+                Bitboard.ray(from.index(), dir, emptyLo, emptyHi,
+                             _rays, 2 * dir);
+            }
+            _dir = 0;
             toNext();
         }
 
@@ -247,115 +697,60 @@ class Board {
         public Square next() {
             if (!hasNext()) {
                 return null;
-            } else {
-                Square to = _from.queenMove(_dir, _steps);
-                toNext();
-                if (isUnblockedMove(_from, to, _asEmpty)) {
-                    return to;
-                }
             }
-            return next();
+            int k = 2 * _dir;
+            int to = Bitboard.nearest(_rays[k], _rays[k + 1], _dir);
+            _rays[k] &= ~Bitboard.bitLo(to);
+            _rays[k + 1] &= ~Bitboard.bitHi(to);
+            toNext();
+            return Square.sq(to);
         }
 
-        /** Advance _dir and _steps, so that the next valid Square is
-         *  _steps steps in direction _dir from _from. */
+        /** Advance _dir to the next direction whose ray still contains
+         *  unvisited squares. */
         private void toNext() {
-            if (_steps == 9 || _steps == 0) {
+            while (_dir < 8 && (_rays[2 * _dir] | _rays[2 * _dir + 1]) == 0) {
                 _dir += 1;
-                _steps = 1;
-            } else {
-                _steps += 1;
             }
-
         }
 
-        /** Starting square. */
-        private Square _from;
+        /** The unvisited squares on the ray in each direction, as
+         *  bitboards: _rays[2 * d] and _rays[2 * d + 1] hold the low and
+         *  high words for direction d. */
+        private final long[] _rays = new long[16];
         /** Current direction. */
         private int _dir;
-        /** Current distance. */
-        private int _steps;
-        /** Square treated as empty. */
-        private Square _asEmpty;
     }
 
-    /** An iterator used by legalMoves. */
+    /** An iterator used by legalMoves.  An adapter over the moves
+     *  produced by legalMoves(Piece, int[]). */
     private class LegalMoveIterator implements Iterator<Move> {
 
         /** All legal moves for SIDE (WHITE or BLACK). */
         LegalMoveIterator(Piece side) {
-            _startingSquares = Square.iterator();
-            _spearThrows = NO_SQUARES;
-            _pieceMoves = NO_SQUARES;
-            _fromPiece = side;
-            toNext();
+            _moves = new int[numLegalMoves(side)];
+            generateMoves(side, _moves);
+            _next = 0;
         }
 
         @Override
         public boolean hasNext() {
-            return _startingSquares.hasNext();
+            return _next < _moves.length;
         }
 
         @Override
         public Move next() {
-            if (_start == Square.sq(100 - 1) && get(_start) == _fromPiece) {
-                if (_nextSquare != null) {
-                    Square s = _spearThrows.next();
-                    if (s != null) {
-                        return mv(_start, _nextSquare, s);
-                    } else {
-                        _nextSquare = _pieceMoves.next();
-                        _spearThrows = reachableFrom(_nextSquare, _start);
-                        return next();
-                    }
-                }
-            }
             if (!hasNext()) {
                 return null;
             }
-            if (_nextSquare == null) {
-                toNext();
-                return next();
-            }
-            Square s = _spearThrows.next();
-            if (s != null) {
-                return mv(_start, _nextSquare, s);
-            } else {
-                _nextSquare = _pieceMoves.next();
-                _spearThrows = reachableFrom(_nextSquare, _start);
-                return next();
-            }
-        }
-
-        /** Advance so that the next valid Move is
-         *  _start-_nextSquare(sp), where sp is the next value of
-         *  _spearThrows. */
-        private void toNext() {
-            _start = _startingSquares.next();
-            while (get(_start) != _fromPiece && _startingSquares.hasNext()) {
-                _start = _startingSquares.next();
-            }
-            if (get(_start) == _fromPiece) {
-                _pieceMoves = reachableFrom(_start, null);
-                _nextSquare = _pieceMoves.next();
-                if (_nextSquare != null) {
-                    _spearThrows = reachableFrom(_nextSquare, _start);
-                }
-            }
+            _next += 1;
+            return mv(_moves[_next - 1]);
         }
 
-        /** Color of side whose moves we are iterating. */
-        private Piece _fromPiece;
-        /** Current starting square. */
-        private Square _start;
-        /** Remaining starting squares to consider. */
-        private Iterator<Square> _startingSquares;
-        /** Current piece's new position. */
-        private Square _nextSquare;
-        /** Remaining moves from _start to consider. */
-        private Iterator<Square> _pieceMoves;
-        /** Remaining spear throws from _piece to consider. */
-        private Iterator<Square> _spearThrows;
+        /** The packed legal moves. */
+        private final int[] _moves;
+        /** Index of the next move in _moves to deliver. */
+        private int _next;
     }
 
     @Override
@@ -364,9 +759,9 @@ class Board {
         for (int i = 9; i >= 0; i -= 1) {
             for (int j = 0; j <= 9; j += 1) {
                 if (j == 0) {
-                    result += "   " + _board[i][j].toString();
+                    result += "   " + get(j, i).toString();
                 } else {
-                    result += " " + _board[i][j].toString();
+                    result += " " + get(j, i).toString();
                 }
             }
             result += "\n";
@@ -374,9 +769,25 @@ class Board {
         return result;
     }
 
-    /** An empty iterator for initialization. */
-    private static final Iterator<Square> NO_SQUARES =
-        Collections.emptyIterator();
+    /** Zobrist keys: PIECE_KEYS[p.ordinal()][k] is the key for piece p
+     *  on square k.  The keys for EMPTY are 0. */
+    private static final long[][] PIECE_KEYS =
+        new long[Piece.values().length][SIZE * SIZE];
+
+    /** Zobrist key XORed into the hash when Black is to move. */
+    private static final long SIDE_KEY;
+
+    static {
+        Random keys = new Random(ZOBRIST_SEED);
+        for (Piece p : Piece.values()) {
+            if (p != EMPTY) {
+                for (int k = 0; k < SIZE * SIZE; k += 1) {
+                    PIECE_KEYS[p.ordinal()][k] = keys.nextLong();
+                }
+            }
+        }
+        SIDE_KEY = keys.nextLong();
+    }
 
     /** Piece whose turn it is (BLACK or WHITE). */
     private Piece _turn;
@@ -385,12 +796,52 @@ class Board {
      *  computed. */
     private Piece _winner;
 
-    /** Representation of the board as a 2D array. */
-    private Piece[][] _board;
+    /** The occupied squares, as a bitboard (low and high words). */
+    private long _occLo, _occHi;
+
+    /** The squares holding white amazons, as a bitboard. */
+    private long _whiteLo, _whiteHi;
+
+    /** The squares holding black amazons, as a bitboard. */
+    private long _blackLo, _blackHi;
+
+    /** The squares holding spears, as a bitboard. */
+    private long _spearLo, _spearHi;
+
+    /** The Zobrist key of the current position. */
+    private long _hash;
+
+    /** _reach[0][k] and _reach[1][k] are the numbers of White and Black
+     *  amazons that can reach square k by an unblocked queen move.  Since
+     *  only the nearest piece in each direction can reach a square, these
+     *  never exceed 8. */
+    private final byte[][] _reach = new byte[2][SIZE * SIZE];
+
+    /** _mobility[k] is the number of squares that the amazon on square k
+     *  can move to (meaningless if there is no amazon on k). */
+    private final byte[] _mobility = new byte[SIZE * SIZE];
+
+    /** The sums of _mobility over the White and Black amazons. */
+    private final int[] _sideMobility = new int[2];
 
     /** Number of moves that have been made. */
     private int _numMoves;
 
-    /** ArrayList containing the state of the board. */
-    private ArrayList<Move> _moveList = new ArrayList<>(0);
+    /** The packed moves made in the game so far, in the order made, used
+     *  by undo. */
+    private final int[] _history = new int[SIZE * SIZE];
+
+    /** The number of moves in _history. */
+    private int _historyLength;
+
+    /** The most recent region analysis of this board, or null. */
+    private Regions _regions;
+
+    /** The packed moves made by makeSearchMove and not yet unmade, in
+     *  the order made.  Since every move places a spear, there can be no
+     *  more than one per square. */
+    private final int[] _searchStack = new int[SIZE * SIZE];
+
+    /** The number of moves on _searchStack. */
+    private int _searchDepth;
 }
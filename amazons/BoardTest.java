@@ -7,6 +7,8 @@ import static org.junit.Assert.*;
 
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.Random;
+import java.util.regex.Pattern;
 import static amazons.Board.*;
 
 
@@ -37,6 +39,146 @@ public class BoardTest {
         assertEquals(0, b.numMoves());
     }
 
+    @Test
+    public void testSearchMoves() {
+        b = new Board();
+        b.makeMove(Move.mv("d1-d7(g7)"));
+        Board copy = new Board(b);
+        int[] moves = new int[MAX_MOVES];
+        int n = copy.legalMoves(BLACK, moves);
+        String before = copy.toString();
+        for (int i = 0; i < n; i += 1) {
+            copy.makeSearchMove(moves[i]);
+            assertEquals(WHITE, copy.turn());
+            assertEquals(2, copy.numMoves());
+            copy.unmakeSearchMove();
+        }
+        assertEquals(before, copy.toString());
+        assertEquals(BLACK, copy.turn());
+        copy.undo();
+        assertEquals(UnitTest.INIT_BOARD_STATE, copy.toString());
+        assertEquals(1, b.numMoves());
+        assertEquals(before, b.toString());
+    }
+
+    @Test
+    public void testHash() {
+        b = new Board();
+        long initial = b.hash();
+        b.makeMove(Move.mv("d1-d5(e5)"));
+        b.makeMove(Move.mv("d10-d6(e6)"));
+        b.makeMove(Move.mv("g1-g5(h5)"));
+        Board other = new Board();
+        other.makeMove(Move.mv("g1-g5(h5)"));
+        other.makeMove(Move.mv("d10-d6(e6)"));
+        assertNotEquals(b.hash(), other.hash());
+        other.makeMove(Move.mv("d1-d5(e5)"));
+        assertEquals(b.toString(), other.toString());
+        assertEquals(b.hash(), other.hash());
+        b.undo();
+        b.undo();
+        b.undo();
+        assertEquals(initial, b.hash());
+        b.put(SPEAR, Square.sq(44));
+        assertNotEquals(initial, b.hash());
+        b.put(EMPTY, Square.sq(44));
+        assertEquals(initial, b.hash());
+    }
+
+    @Test
+    public void testIncrementalMobility() {
+        b = new Board();
+        Random random = new Random(61);
+        int[] moves = new int[MAX_MOVES];
+        for (int game = 0; game < 5; game += 1) {
+            b.init();
+            checkMobility(b);
+            while (true) {
+                int n = b.legalMoves(b.turn(), moves);
+                if (n == 0) {
+                    break;
+                }
+                b.makeSearchMove(moves[random.nextInt(n)]);
+                checkMobility(b);
+                if (random.nextInt(4) == 0) {
+                    b.unmakeSearchMove();
+                    checkMobility(b);
+                    b.makeSearchMove(moves[random.nextInt(n)]);
+                }
+            }
+            b.put(WHITE, Square.sq(random.nextInt(100)));
+            b.put(EMPTY, Square.sq(random.nextInt(100)));
+            checkMobility(b);
+        }
+    }
+
+    /** Check that the mobility and reach counts of BOARD agree with those
+     *  computed from scratch. */
+    private void checkMobility(Board board) {
+        for (Piece side : new Piece[] { WHITE, BLACK }) {
+            int total = 0, blocked = 0;
+            int[] reach = new int[100];
+            for (int k = 0; k < 100; k += 1) {
+                if (board.get(Square.sq(k)) == side) {
+                    int count = 0;
+                    Iterator<Square> a = board.reachableFrom(Square.sq(k),
+                                                             null);
+                    for (Square s = a.next(); s != null; s = a.next()) {
+                        reach[s.index()] += 1;
+                        count += 1;
+                    }
+                    assertEquals(count, board.mobility(Square.sq(k)));
+                    total += count;
+                    blocked += count == 0 ? 1 : 0;
+                }
+            }
+            assertEquals(total, board.mobility(side));
+            assertEquals(blocked, board.numBlocked(side));
+            assertEquals(total > 0, board.hasLegalMove(side));
+            for (int k = 0; k < 100; k += 1) {
+                assertEquals(reach[k], board.reach(side, Square.sq(k)));
+            }
+        }
+    }
+
+    @Test
+    public void testRegions() {
+        b = new Board();
+        Random random = new Random(62);
+        int[] moves = new int[MAX_MOVES];
+        int decided = 0;
+        for (int game = 0; game < 10; game += 1) {
+            b.init();
+            while (b.winner() == null) {
+                Regions regions = b.regions();
+                long coveredLo = 0, coveredHi = 0;
+                for (int r = 0; r < regions.count(); r += 1) {
+                    assertEquals(0, coveredLo & regions.regionLo(r));
+                    assertEquals(0, coveredHi & regions.regionHi(r));
+                    coveredLo |= regions.regionLo(r);
+                    coveredHi |= regions.regionHi(r);
+                }
+                assertEquals(100 - Bitboard.count(b.piecesLo(SPEAR),
+                                                  b.piecesHi(SPEAR)),
+                             Bitboard.count(coveredLo, coveredHi));
+                Piece expected = b.decidedWinner();
+                if (expected != null) {
+                    decided += 1;
+                    Board fill = new Board(b);
+                    while (fill.winner() == null) {
+                        int move = fill.regions().fillingMove(fill.turn());
+                        assertTrue(fill.isLegal(Move.mv(move)));
+                        fill.makeSearchMove(move);
+                    }
+                    assertEquals(expected, fill.winner());
+                }
+                int n = b.legalMoves(b.turn(), moves);
+                b.makeSearchMove(moves[random.nextInt(n)]);
+            }
+        }
+        assertTrue(decided > 0);
+    }
+
     @Test
     public void testReachableFrom() {
         b = new Board();
@@ -110,6 +252,123 @@ public class BoardTest {
         assertEquals(null, a.next());
     }
 
+    @Test
+    public void testMoveBuffer() {
+        b = new Board();
+        int[] moves = new int[MAX_MOVES];
+        int n = b.legalMoves(WHITE, moves);
+        assertEquals(2176, n);
+        assertEquals(n, b.numLegalMoves(BLACK));
+        Iterator<Move> a = b.legalMoves(WHITE);
+        for (int i = 0; i < n; i += 1) {
+            assertEquals(a.next(), Move.mv(moves[i]));
+        }
+        assertTrue(b.isLegal(Move.mv(moves[n - 1])));
+
+        b = new Board();
+        makeBoard(b);
+        b.put(BLACK, Square.sq(77));
+        assertFalse(b.hasLegalMove(BLACK));
+        assertEquals(0, b.legalMoves(BLACK, moves));
+        assertTrue(b.hasLegalMove(WHITE));
+    }
+
+    @Test
+    public void testMoveValues() {
+        Move m = Move.mv("d1-d7(g7)");
+        assertEquals(m, Move.mv("d1 d7 g7"));
+        assertEquals(m, Move.mv(m.pack()));
+        assertEquals(m.hashCode(), Move.mv(m.pack()).hashCode());
+        assertNotEquals(m, Move.mv("d1-d7(g1)"));
+        assertEquals("d1-d7(g7)", m.toString());
+        assertEquals("d1-d7(g7)", Move.toString(m.pack()));
+        assertEquals(Square.sq("d7"), m.to());
+        b = new Board();
+        assertEquals(0, b.lastMove());
+        b.makeMove(m);
+        assertEquals(m.pack(), b.lastMove());
+        b.undo();
+        assertEquals(0, b.lastMove());
+    }
+
+    @Test
+    public void testConcurrentMoveParsing() throws InterruptedException {
+        b = new Board();
+        int[] moves = new int[MAX_MOVES];
+        int n = b.legalMoves(WHITE, moves);
+        boolean[] failed = new boolean[1];
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t += 1) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < n; i += 1) {
+                    String text = Move.toString(moves[i]);
+                    Move m = Move.mv(text);
+                    if (m == null || m.pack() != moves[i]
+                        || !Move.isGrammaticalMove(text)
+                        || !text.equals(m.toString())) {
+                        failed[0] = true;
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertFalse(failed[0]);
+    }
+
+    @Test
+    public void testMoveScanner() {
+        Pattern pattern = Pattern.compile(
+            String.format("%s-%s\\(%s\\)|%s\\s+%s\\s+%s",
+                          Square.SQ, Square.SQ, Square.SQ,
+                          Square.SQ, Square.SQ, Square.SQ));
+        String[] pieces = {
+            "a1", "j10", "d7", "g1", "a", "k1", "10", "0", "1", "-", "(",
+            ")", " ", "\t", "  ", "d1-d7(g7)", "d1 d7 g7", "d10", "b"
+        };
+        Random random = new Random(5);
+        for (int i = 0; i < 50000; i += 1) {
+            StringBuilder text = new StringBuilder();
+            int n = 1 + random.nextInt(6);
+            for (int k = 0; k < n; k += 1) {
+                text.append(pieces[random.nextInt(pieces.length)]);
+            }
+            String str = text.toString();
+            assertEquals(str, pattern.matcher(str).matches(),
+                         Move.isGrammaticalMove(str));
+        }
+        assertEquals(Move.mv("d1-d7(g7)"), Move.mv("d1 \t d7  g7"));
+        assertEquals(Move.pack(9, 99, 0), Move.parse("j1-j10(a1)"));
+        assertEquals(0, Move.parse("a1-b3(c3)"));
+        assertNull(Move.mv("a1-b3(c3)"));
+        assertEquals(-1, Move.parse("a1-b2(c3) "));
+    }
+
+    @Test
+    public void testSetPosition() {
+        b = new Board();
+        b.makeMove(Move.mv("d1-d7(g7)"));
+        b.makeMove(Move.mv("g10-g8(e8)"));
+        b.makeMove(Move.mv("a4-b4(c4)"));
+        Board copy = new Board();
+        copy.setPosition(b.toPositionString(), BLACK);
+        assertEquals(b.toString(), copy.toString());
+        assertEquals(b.hash(), copy.hash());
+        assertEquals(BLACK, copy.turn());
+        assertEquals(0, copy.numMoves());
+        assertEquals(b.numLegalMoves(BLACK), copy.numLegalMoves(BLACK));
+        copy.setPosition(new Board().toPositionString(), WHITE);
+        assertEquals(new Board().hash(), copy.hash());
+        try {
+            copy.setPosition(b.toPositionString().replace('W', '-'), WHITE);
+            fail("accepted a position with no white amazons");
+        } catch (IllegalArgumentException excp) {
+            assertEquals(new Board().hash(), copy.hash());
+        }
+    }
+
     @Test
     public void testSquare() {
         assertEquals("j2", Square.sq(19).toString());
@@ -0,0 +1,29 @@
+package amazons;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** A Flight Recorder event for the execution of one command by a
+ *  Controller.  Its duration is the command's latency; for a move, it
+ *  does not include the time a player took to choose it.
+ *  @author Yuan Xie.
+ */
+@Name("amazons.Command")
+@Label("Command")
+@Category("Amazons")
+@Description("Execution of one command by a Controller")
+class CommandEvent extends Event {
+
+    /** The kind of command ("move", "auto", "perft", etc.), or "error"
+     *  if it was not recognized. */
+    @Label("Kind")
+    String kind;
+
+    /** The text of the command. */
+    @Label("Command")
+    String command;
+
+}
@@ -1,11 +1,23 @@
 package amazons;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Random;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.regex.Pattern;
 import java.util.regex.Matcher;
-import java.util.function.Consumer;
+import java.util.function.BiConsumer;
 
 import static amazons.Utils.*;
 import static amazons.Piece.*;
@@ -37,21 +49,76 @@ final class Controller {
         _reporter = reporter;
     }
 
+    /** Read commands for manual players from INPUT, and write prompts
+     *  and dumps of the board to OUTPUT, instead of the standard input
+     *  and output. */
+    void setIO(InputStream input, PrintStream output) {
+        _inputStream = input;
+        _input = new Scanner(input);
+        _reader = null;
+        _output = output;
+    }
+
+    /** Make TEMPLATE available under NAME as an exemplar for automated
+     *  players, so that "auto white NAME" and "auto black NAME" select
+     *  it. */
+    void addEngine(String name, Player template) {
+        _engines.put(name, template);
+    }
+
+    /** Return the template for automated players added under NAME by
+     *  addEngine, or null if there is none. */
+    Player engine(String name) {
+        return _engines.get(name);
+    }
+
+    /** Use PERFT for the "perft" command. */
+    void setPerft(Perft perft) {
+        _perft = perft;
+    }
+
+    /** Report the number of leaves of the tree of legal moves of depth
+     *  DEPTH from the current position, and the time taken.  If DIVIDE,
+     *  also report the count below each root move. */
+    void perft(int depth, boolean divide) {
+        long count = _perft.count(_board, depth);
+        if (divide) {
+            int[] moves = _perft.rootMoves();
+            long[] counts = _perft.rootCounts();
+            for (int i = 0; i < moves.length; i += 1) {
+                _reporter.reportNote("%s: %d", Move.toString(moves[i]),
+                                     counts[i]);
+            }
+        }
+        _reporter.reportNote("Perft %d: %d leaves in %.3f s (%d/s).",
+                             depth, count,
+                             (double) _perft.elapsed() / NANOS_PER_SECOND,
+                             _perft.nodesPerSecond(count));
+    }
+
     /** Play Amazons. */
     void play() {
         _playing = true;
         _winner = null;
         _board.init();
+        resetClocks();
         _white = _manualPlayerTemplate.create(WHITE, this);
         _black = _autoPlayerTemplate.create(BLACK, this);
         while (_playing) {
             _view.update(_board);
             String command;
             if (_winner == null) {
-                if (_board.turn() == WHITE) {
-                    command = _white.myMove();
+                long start = System.currentTimeMillis();
+                Piece side = _board.turn();
+                if (side == WHITE) {
+                    command = awaitMove(_white);
                 } else {
-                    command = _black.myMove();
+                    command = awaitMove(_black);
+                }
+                chargeTime(side, System.currentTimeMillis() - start);
+                if (command == null) {
+                    forfeit(side);
+                    continue;
                 }
             } else {
                 command = _nonPlayer.myMove();
@@ -68,6 +135,97 @@ final class Controller {
         if (_logFile != null) {
             _logFile.close();
         }
+        if (_statsFile != null) {
+            _statsFile.close();
+        }
+    }
+
+    /** Play (see play) on EXECUTOR, returning a future for the winner of
+     *  the last game played (null if it was not finished).  Many
+     *  Controllers may share one EXECUTOR. */
+    CompletableFuture<Piece> playAsync(Executor executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            play();
+            return _winner;
+        }, executor);
+    }
+
+    /** Return the winner of the current game, or null if it is not
+     *  finished.  Unlike board().winner(), counts wins on time (see
+     *  setMoveDeadline). */
+    Piece winner() {
+        return _winner;
+    }
+
+    /** If MILLIS > 0, give each player at most MILLIS milliseconds to
+     *  send each command while a game is in progress: once they have
+     *  passed, cancel its choice (see Player.cancelMove), and if it has
+     *  still sent nothing after a further CANCEL_GRACE milliseconds,
+     *  abandon it and declare that it has lost on time.  If MILLIS is 0
+     *  (the default), wait for players indefinitely, and call myMove on
+     *  the thread running play.  A deadline is meant for automated
+     *  players, which are otherwise trusted to keep to the time limits
+     *  (see setTimeLimits); interactive players (see
+     *  Player.interactive) are always waited for. */
+    void setMoveDeadline(long millis) {
+        if (millis < 0) {
+            throw error("deadline must be non-negative");
+        }
+        _moveDeadline = millis;
+    }
+
+    /** Run players' choices of moves under a deadline on EXECUTOR, which
+     *  may be shared with other Controllers, instead of on threads of my
+     *  own. */
+    void setMoveExecutor(ExecutorService executor) {
+        _moveExecutor = executor;
+    }
+
+    /** Return the next command from PLAYER, waiting for it as set by
+     *  setMoveDeadline, or null if PLAYER has run out of time. */
+    private String awaitMove(Player player) {
+        if (_moveDeadline == 0 || player.interactive()) {
+            return player.myMove();
+        }
+        CompletableFuture<String> move = player.requestMove(moveExecutor());
+        try {
+            try {
+                return move.get(_moveDeadline, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException excp) {
+                player.cancelMove();
+                return move.get(CANCEL_GRACE, TimeUnit.MILLISECONDS);
+            }
+        } catch (TimeoutException excp) {
+            player.abandonMove();
+            return null;
+        } catch (InterruptedException excp) {
+            player.abandonMove();
+            Thread.currentThread().interrupt();
+            return "quit";
+        } catch (ExecutionException excp) {
+            if (excp.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) excp.getCause();
+            }
+            throw new IllegalStateException(excp.getCause());
+        }
+    }
+
+    /** Return the executor for players' choices of moves, creating one
+     *  if necessary. */
+    private ExecutorService moveExecutor() {
+        if (_moveExecutor == null) {
+            _moveExecutor = cachedPool("amazons-player");
+        }
+        return _moveExecutor;
+    }
+
+    /** End the current game with a loss on time for SIDE. */
+    private void forfeit(Piece side) {
+        _winner = side.opponent();
+        _white = _nonPlayer;
+        _black = _nonPlayer;
+        _reporter.reportNote("%s loses on time.", side.toName());
+        _reporter.reportNote("%s wins.", _winner.toName());
     }
 
     /** Return the current board.  The value returned should not be
@@ -91,12 +249,58 @@ final class Controller {
         _randGen.setSeed(seed);
     }
 
+    /** Set the time limits for each player to MOVETIME milliseconds per
+     *  move and GAMETIME milliseconds per game.  A value of 0 means no
+     *  limit. */
+    void setTimeLimits(long moveTime, long gameTime) {
+        if (moveTime < 0 || gameTime < 0) {
+            throw error("time limits must be non-negative");
+        }
+        _moveTimeLimit = moveTime;
+        _gameTimeLimit = gameTime;
+    }
+
+    /** Return the time limit per move in milliseconds, or 0 if there is
+     *  none. */
+    long moveTimeLimit() {
+        return _moveTimeLimit;
+    }
+
+    /** Return the time limit per game for each player in milliseconds, or
+     *  0 if there is none. */
+    long gameTimeLimit() {
+        return _gameTimeLimit;
+    }
+
+    /** Return the time in milliseconds that SIDE has spent choosing moves
+     *  in the current game. */
+    long timeUsed(Piece side) {
+        return side == WHITE ? _whiteTimeUsed : _blackTimeUsed;
+    }
+
+    /** Add MILLIS to the time used by SIDE in the current game. */
+    private void chargeTime(Piece side, long millis) {
+        if (side == WHITE) {
+            _whiteTimeUsed += millis;
+        } else {
+            _blackTimeUsed += millis;
+        }
+    }
+
+    /** Start both players' game clocks from zero. */
+    private void resetClocks() {
+        _whiteTimeUsed = _blackTimeUsed = 0;
+    }
+
     /** Return the next line of input, or null if there is no more. First
      *  prompts for the line.  Trims the returned line (if any) of all
      *  leading and trailing whitespace. */
     String readLine() {
-        System.out.print("> ");
-        System.out.flush();
+        if (_batch) {
+            return readBatchLine();
+        }
+        _output.print("> ");
+        _output.flush();
         if (_input.hasNextLine()) {
             return _input.nextLine().trim();
         } else {
@@ -104,6 +308,31 @@ final class Controller {
         }
     }
 
+    /** Return the next line of input in batch mode, trimmed, or null if
+     *  there is no more. */
+    private String readBatchLine() {
+        if (_reader == null) {
+            _reader = new BufferedReader(new InputStreamReader(_inputStream),
+                                         INPUT_BUFFER_SIZE);
+        }
+        try {
+            String line = _reader.readLine();
+            return line == null ? null : line.trim();
+        } catch (IOException excp) {
+            return null;
+        }
+    }
+
+    /** Read commands in batch mode iff BATCH.  In batch mode, readLine
+     *  issues no prompts and reads through a large buffer, the log file
+     *  and statistics file are flushed only every LOG_FLUSH_INTERVAL
+     *  commands and when closed, and well-formed commands are recognized
+     *  by a hand-written scanner instead of regular expressions.  The
+     *  games played are the same in either mode. */
+    void setBatch(boolean batch) {
+        _batch = batch;
+    }
+
     /** Report error by calling reportError(FORMAT, ARGS) on my reporter. */
     void reportError(String format, Object... args) {
         _reporter.reportError(format, args);
@@ -119,49 +348,114 @@ final class Controller {
         _reporter.reportMove(move);
     }
 
-    /** A Command is pair (<pattern>, <processor>), where <pattern> is a
-     *  Matcher that matches instances of a particular command, and
-     *  <processor> is a functional object whose .accept method takes a
-     *  successfully matched Matcher and performs some operation. */
+    /** Report the statistics STATS of a search by SIDE's automated
+     *  player: write them to my statistics file, if any, and pass them
+     *  to reportSearchInfo on my reporter if enabled by
+     *  setShowSearchInfo. */
+    void reportSearchInfo(Piece side, SearchStats stats) {
+        if (_statsFile != null) {
+            _statsFile.println(stats.toCsv(side));
+            if (!_batch) {
+                _statsFile.flush();
+            }
+        }
+        if (_showSearchInfo) {
+            _reporter.reportSearchInfo(side, stats);
+        }
+    }
+
+    /** Report STATS, the statistics so far of a search by SIDE's
+     *  automated player, which has just completed an iteration, by
+     *  calling reportIteration on my reporter if enabled by
+     *  setShowSearchInfo. */
+    void reportIteration(Piece side, SearchStats stats) {
+        if (_showSearchInfo) {
+            _reporter.reportIteration(side, stats);
+        }
+    }
+
+    /** Pass search statistics to my reporter iff SHOW. */
+    void setShowSearchInfo(boolean show) {
+        _showSearchInfo = show;
+    }
+
+    /** Write the statistics of each search, one line per search, as
+     *  comma-separated values (see SearchStats.toCsv) to STATSFILE,
+     *  after a header line.  If STATSFILE is null, write none. */
+    void setStatsFile(PrintStream statsFile) {
+        _statsFile = statsFile;
+        if (statsFile != null) {
+            statsFile.println(SearchStats.CSV_HEADER);
+        }
+    }
+
+    /** A Command is a triple (<name>, <pattern>, <processor>), where
+     *  <name> names the kind of command, <pattern> is a
+     *  Pattern that matches instances of a particular command, and
+     *  <processor> is a functional object whose .accept method takes the
+     *  Controller to act on and the arguments of a command and performs
+     *  some operation.  The arguments are the text of the whole command
+     *  followed by the text of each group of <pattern> in a match of the
+     *  command (null for groups that did not participate).  Commands
+     *  hold no state of their own, so one table serves every Controller,
+     *  in any number of threads. */
     private static class Command {
-        /** A new Command that matches PATN (a regular expression) and uses
-         *  PROCESSOR to process commands that match the pattern. */
-        Command(String patn, Consumer<Matcher> processor) {
-            _matcher = Pattern.compile(patn).matcher("");
+        /** A new Command called NAME that matches PATN (a regular
+         *  expression) and uses PROCESSOR to process commands that match
+         *  the pattern. */
+        Command(String name, String patn,
+                BiConsumer<Controller, String[]> processor) {
+            _name = name;
+            _pattern = Pattern.compile(patn);
             _processor = processor;
         }
 
-        /** A Matcher matching my pattern. */
-        protected final Matcher _matcher;
+        /** My name. */
+        protected final String _name;
+        /** My pattern. */
+        protected final Pattern _pattern;
         /** The function object that implements my command. */
-        protected final Consumer<Matcher> _processor;
+        protected final BiConsumer<Controller, String[]> _processor;
     }
 
     /** A list of Commands describing the valid textual commands to the
      *  Amazons program and the methods to process them. */
-    private Command[] _commands = {
-        new Command("quit$", this::doQuit),
-        new Command("seed\\s+(\\d+)$", this::doSeed),
-        new Command("dump$", this::doDump),
-        new Command("new$", this::doNew),
-        new Command(String.format("%s-%s\\(%s\\)|%s\\s+%s\\s+%s",
-                SQ, SQ, SQ, SQ, SQ, SQ) + "$", this::doMove),
-        new Command("auto\\s+(black|white)$", this::doAuto),
-        new Command("manual\\s+(black|white)$", this::doManual)
+    private static final Command[] COMMANDS = {
+        new Command("quit", "quit$", Controller::doQuit),
+        new Command("seed", "seed\\s+(\\d+)$", Controller::doSeed),
+        new Command("dump", "dump$", Controller::doDump),
+        new Command("new", "new$", Controller::doNew),
+        new Command("move",
+                    String.format("%s-%s\\(%s\\)|%s\\s+%s\\s+%s",
+                                  SQ, SQ, SQ, SQ, SQ, SQ) + "$",
+                    Controller::doMove),
+        new Command("auto", "auto\\s+(black|white)(?:\\s+(\\w+))?$",
+                    Controller::doAuto),
+        new Command("time", "time\\s+(\\d+)(?:\\s+(\\d+))?$",
+                    Controller::doTime),
+        new Command("solve", "solve(?:\\s+(\\d+))?$", Controller::doSolve),
+        new Command("perft", "perft\\s+(\\d+)(\\s+divide)?$",
+                    Controller::doPerft),
+        new Command("manual", "manual\\s+(black|white)$",
+                    Controller::doManual)
     };
 
-    /** Command that performs a move using MAT. */
-    private void doMove(Matcher mat) {
-        _board.makeMove(Move.mv(mat.group()));
+    /** Command that performs a move using ARGS, and tells both players
+     *  about it. */
+    private void doMove(String[] args) {
+        Move move = Move.mv(args[0]);
+        _board.makeMove(move);
+        _white.moveMade(move);
+        _black.moveMade(move);
         if (_board.turn() == WHITE) {
-            if (_board.legalMoves(WHITE).next() == null) {
+            if (!_board.hasLegalMove(WHITE)) {
                 _winner = BLACK;
                 _white = _nonPlayer;
                 _black = _nonPlayer;
                 _reporter.reportNote("Black wins.");
             }
         } else if (_board.turn() == BLACK) {
-            if (_board.legalMoves(BLACK).next() == null) {
+            if (!_board.hasLegalMove(BLACK)) {
                 _winner = WHITE;
                 _white = _nonPlayer;
                 _black = _nonPlayer;
@@ -170,78 +464,285 @@ final class Controller {
         }
     }
 
-    /** Command "auto" using MAT. */
-    private void doAuto(Matcher mat) {
-        if (mat.group(1).equals("white")) {
-            _white = _autoPlayerTemplate.create(WHITE, this);
-        } else if (mat.group(1).equals("black")) {
-            _black = _autoPlayerTemplate.create(BLACK, this);
+    /** Command "auto COLOR [ENGINE]" using ARGS.  Without ENGINE, uses
+     *  the default automated player. */
+    private void doAuto(String[] args) {
+        Player template = _autoPlayerTemplate;
+        if (args[2] != null) {
+            template = _engines.get(args[2]);
+            if (template == null) {
+                throw error("Unknown engine: %s", args[2]);
+            }
+        }
+        if (args[1].equals("white")) {
+            _white = template.create(WHITE, this);
+        } else if (args[1].equals("black")) {
+            _black = template.create(BLACK, this);
         } else {
             throw error("Wrong auto format.");
         }
     }
 
-    /** Command "manual" using MAT. */
-    private void doManual(Matcher mat) {
-        if (mat.group(1).equals("white")) {
+    /** Command "time MOVE [GAME]" using ARGS: set the time limits to MOVE
+     *  seconds per move and GAME seconds per game (unlimited if
+     *  absent). */
+    private void doTime(String[] args) {
+        try {
+            long move = Long.parseLong(args[1]);
+            long game =
+                args[2] == null ? 0 : Long.parseLong(args[2]);
+            setTimeLimits(move * MILLIS_PER_SECOND, game * MILLIS_PER_SECOND);
+        } catch (NumberFormatException excp) {
+            throw error("number too large");
+        }
+    }
+
+    /** Command "solve [NODES]" using ARGS: report which side wins the
+     *  current position with best play (and a winning move for the side
+     *  to move, if it wins), if a PNSolver can prove it by expanding at
+     *  most NODES nodes (PNSolver.DEFAULT_NODES if absent). */
+    private void doSolve(String[] args) {
+        PNSolver solver = new PNSolver(PNSolver.DEFAULT_MB);
+        if (args[1] != null) {
+            try {
+                solver.setNodeBudget(Long.parseLong(args[1]));
+            } catch (NumberFormatException excp) {
+                throw error("number too large");
+            }
+        }
+        Piece winner = solver.solve(_board);
+        String name = winner == WHITE ? "White" : "Black";
+        if (winner == null) {
+            _reporter.reportNote("Not solved in %d nodes.", solver.nodes());
+        } else if (winner == _board.turn()) {
+            _reporter.reportNote("%s wins with %s (%d nodes).", name,
+                                 Move.mv(solver.bestMove()), solver.nodes());
+        } else {
+            _reporter.reportNote("%s wins (%d nodes).", name,
+                                 solver.nodes());
+        }
+    }
+
+    /** Command "perft DEPTH [divide]" using ARGS. */
+    private void doPerft(String[] args) {
+        int depth;
+        try {
+            depth = Integer.parseInt(args[1]);
+        } catch (NumberFormatException excp) {
+            throw error("number too large");
+        }
+        perft(depth, args[2] != null);
+    }
+
+    /** Command "manual" using ARGS. */
+    private void doManual(String[] args) {
+        if (args[1].equals("white")) {
             _white = _manualPlayerTemplate.create(WHITE, this);
-        } else if (mat.group(1).equals("black")) {
+        } else if (args[1].equals("black")) {
             _black = _manualPlayerTemplate.create(BLACK, this);
         } else {
             throw error("Wrong manual format.");
         }
     }
 
-    /** A Matcher whose Pattern matches comments. */
-    private final Matcher _comment = Pattern.compile("#.*").matcher("");
+    /** A Pattern that matches comments. */
+    private static final Pattern COMMENT = Pattern.compile("#.*");
 
     /** Check that CMND is one of the valid Amazons commands and execute it, if
-     *  so, raising an IllegalArgumentException otherwise. */
+     *  so, raising an IllegalArgumentException otherwise.  Records the
+     *  execution as a CommandEvent for Flight Recorder. */
     private void executeCommand(String cmnd) {
         if (_logFile != null) {
             _logFile.println(cmnd);
-            _logFile.flush();
+            _unflushedCommands += 1;
+            if (!_batch || _unflushedCommands >= LOG_FLUSH_INTERVAL) {
+                _logFile.flush();
+                _unflushedCommands = 0;
+            }
         }
 
-        _comment.reset(cmnd);
-        cmnd = _comment.replaceFirst("").trim().toLowerCase();
+        if (_batch) {
+            int comment = cmnd.indexOf('#');
+            if (comment >= 0) {
+                cmnd = cmnd.substring(0, comment);
+            }
+            cmnd = cmnd.trim().toLowerCase();
+        } else {
+            cmnd = COMMENT.matcher(cmnd).replaceFirst("").trim().toLowerCase();
+        }
 
         if (cmnd.isEmpty()) {
             return;
         }
-        for (Command parser : _commands) {
-            parser._matcher.reset(cmnd);
-            if (parser._matcher.matches()) {
-                parser._processor.accept(parser._matcher);
-                return;
+        CommandEvent event = new CommandEvent();
+        event.begin();
+        String kind = "error";
+        try {
+            if (_batch) {
+                String[] args = new String[BATCH_ARGS];
+                Command parser = scanCommand(cmnd, args);
+                if (parser != null) {
+                    kind = parser._name;
+                    parser._processor.accept(this, args);
+                    return;
+                }
+            }
+            for (Command parser : COMMANDS) {
+                Matcher mat = parser._pattern.matcher(cmnd);
+                if (mat.matches()) {
+                    kind = parser._name;
+                    String[] args = new String[mat.groupCount() + 1];
+                    for (int i = 0; i < args.length; i += 1) {
+                        args[i] = mat.group(i);
+                    }
+                    parser._processor.accept(this, args);
+                    return;
+                }
+            }
+            throw error("Bad command: %s", cmnd);
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.kind = kind;
+                event.command = cmnd;
+                event.commit();
             }
         }
-        throw error("Bad command: %s", cmnd);
+    }
+
+    /** Return the Command that CMND (stripped of comments, trimmed and in
+     *  lower case) invokes, filling ARGS with its arguments as the
+     *  Command's pattern would, if CMND is a well-formed command whose
+     *  arguments need at most two groups.  Otherwise return null, leaving
+     *  CMND to be matched against the patterns, which also produce the
+     *  error messages.  Scans CMND by hand, since in batch mode it is
+     *  called for every command. */
+    private static Command scanCommand(String cmnd, String[] args) {
+        if (Move.parse(cmnd) >= 0) {
+            args[0] = cmnd;
+            return command("move");
+        }
+        String[] words = new String[BATCH_ARGS + 1];
+        int n = 0;
+        for (int k = 0; k < cmnd.length(); n += 1) {
+            if (n == words.length) {
+                return null;
+            }
+            int end = k;
+            while (end < cmnd.length()
+                   && !Move.isWhitespace(cmnd.charAt(end))) {
+                end += 1;
+            }
+            words[n] = cmnd.substring(k, end);
+            k = Move.skipWhitespace(cmnd, end);
+        }
+        args[0] = cmnd;
+        switch (words[0]) {
+        case "quit": case "new": case "dump":
+            return n == 1 ? command(words[0]) : null;
+        case "seed":
+            return n == 2 && isNumeral(words[1], args, 1)
+                ? command("seed") : null;
+        case "auto":
+            if (n < 2 || n > 3 || !isColor(words[1], args, 1)
+                || n == 3 && !isWord(words[2], args, 2)) {
+                return null;
+            }
+            return command("auto");
+        case "manual":
+            return n == 2 && isColor(words[1], args, 1)
+                ? command("manual") : null;
+        case "time":
+            if (n < 2 || n > 3 || !isNumeral(words[1], args, 1)
+                || n == 3 && !isNumeral(words[2], args, 2)) {
+                return null;
+            }
+            return command("time");
+        case "solve":
+            if (n > 2 || n == 2 && !isNumeral(words[1], args, 1)) {
+                return null;
+            }
+            return command("solve");
+        case "perft":
+            if (n < 2 || n > 3 || !isNumeral(words[1], args, 1)
+                || n == 3 && !words[2].equals("divide")) {
+                return null;
+            }
+            args[2] = n == 3 ? words[2] : null;
+            return command("perft");
+        default:
+            return null;
+        }
+    }
+
+    /** Return the Command named NAME. */
+    private static Command command(String name) {
+        for (Command parser : COMMANDS) {
+            if (parser._name.equals(name)) {
+                return parser;
+            }
+        }
+        throw new IllegalStateException("no command " + name);
+    }
+
+    /** If WORD is a non-empty string of decimal digits, store it in
+     *  ARGS[K] and return true.  Otherwise return false. */
+    private static boolean isNumeral(String word, String[] args, int k) {
+        for (int i = 0; i < word.length(); i += 1) {
+            if (word.charAt(i) < '0' || word.charAt(i) > '9') {
+                return false;
+            }
+        }
+        args[k] = word;
+        return !word.isEmpty();
+    }
+
+    /** If WORD is "white" or "black", store it in ARGS[K] and return
+     *  true.  Otherwise return false. */
+    private static boolean isColor(String word, String[] args, int k) {
+        args[k] = word;
+        return word.equals("white") || word.equals("black");
+    }
+
+    /** If WORD is a non-empty string of letters, digits and
+     *  underscores, store it in ARGS[K] and return true.  Otherwise
+     *  return false. */
+    private static boolean isWord(String word, String[] args, int k) {
+        for (int i = 0; i < word.length(); i += 1) {
+            char c = word.charAt(i);
+            if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z'
+                  || c >= '0' && c <= '9' || c == '_')) {
+                return false;
+            }
+        }
+        args[k] = word;
+        return !word.isEmpty();
     }
 
     /** Command "new". */
-    private void doNew(Matcher unused) {
+    private void doNew(String[] unused) {
         _board.init();
+        resetClocks();
         _winner = null;
     }
 
     /** Command "quit". */
-    private void doQuit(Matcher unused) {
+    private void doQuit(String[] unused) {
         _playing = false;
     }
 
-    /** Command "seed N" where N is the first group of MAT. */
-    private void doSeed(Matcher mat) {
+    /** Command "seed N" where N is ARGS[1]. */
+    private void doSeed(String[] args) {
         try {
-            setSeed(Long.parseLong(mat.group(1)));
+            setSeed(Long.parseLong(args[1]));
         } catch (NumberFormatException excp) {
             throw error("number too large");
         }
     }
 
-    /** Dump the contents of the board on standard output. */
-    private void doDump(Matcher unused) {
-        System.out.printf("===%n%s===%n", _board);
+    /** Dump the contents of the board on my output. */
+    private void doDump(String[] unused) {
+        _output.printf("===%n%s===%n", _board);
     }
 
     /** The board. */
@@ -262,9 +763,30 @@ final class Controller {
     /** Log file, or null if absent. */
     private PrintStream _logFile;
 
+    /** File for search statistics, or null if absent. */
+    private PrintStream _statsFile;
+
+    /** True iff search statistics go to my reporter. */
+    private boolean _showSearchInfo;
+
     /** Input source. */
     private Scanner _input;
 
+    /** The stream underlying _input. */
+    private InputStream _inputStream = System.in;
+
+    /** Destination of prompts and dumps. */
+    private PrintStream _output = System.out;
+
+    /** Input source in batch mode, or null if not yet needed. */
+    private BufferedReader _reader;
+
+    /** True iff reading commands in batch mode (see setBatch). */
+    private boolean _batch;
+
+    /** Number of commands logged since the log file was last flushed. */
+    private int _unflushedCommands;
+
     /** The current White and Black players, each created from
      *  _autoPlayerTemplate or _manualPlayerTemplate. */
     private Player _white, _black;
@@ -276,7 +798,52 @@ final class Controller {
     /** The current templates for manual and automated players. */
     private Player _autoPlayerTemplate, _manualPlayerTemplate;
 
+    /** Named templates for automated players (see addEngine). */
+    private Map<String, Player> _engines = new HashMap<>();
+
     /** Reporter for messages and errors. */
     private Reporter _reporter;
 
+    /** Counter used by the perft command. */
+    private Perft _perft = new Perft(1, 0);
+
+    /** Milliseconds that a player whose choice has been cancelled has
+     *  to send a command (see setMoveDeadline). */
+    static final long CANCEL_GRACE = 1000;
+
+    /** Number of commands between flushes of the log in batch mode. */
+    static final int LOG_FLUSH_INTERVAL = 256;
+
+    /** Size in characters of the input buffer in batch mode. */
+    private static final int INPUT_BUFFER_SIZE = 1 << 16;
+
+    /** Number of arguments (the command and two groups) that
+     *  scanCommand fills in. */
+    private static final int BATCH_ARGS = 3;
+
+    /** Default time limit per move, in milliseconds: none, so that
+     *  automated players search to a small fixed depth and untimed
+     *  games (such as the scripted tests) stay fast. */
+    static final long DEFAULT_MOVE_TIME = 0;
+
+    /** Default time limit per game for each player, in milliseconds:
+     *  none. */
+    static final long DEFAULT_GAME_TIME = 0;
+
+    /** Time limits per move and per game, in milliseconds (0 for
+     *  none). */
+    private long _moveTimeLimit = DEFAULT_MOVE_TIME,
+        _gameTimeLimit = DEFAULT_GAME_TIME;
+
+    /** The longest a player may take to send a command, in
+     *  milliseconds, or 0 if there is no limit. */
+    private long _moveDeadline;
+
+    /** Executor for players' choices under a deadline, or null if not
+     *  yet needed. */
+    private ExecutorService _moveExecutor;
+
+    /** Milliseconds used by each side in the current game. */
+    private long _whiteTimeUsed, _blackTimeUsed;
+
 }
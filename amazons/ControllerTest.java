@@ -0,0 +1,116 @@
+package amazons;
+
+import org.junit.Test;
+
+import static amazons.Piece.*;
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/** Tests of the Controller class.
+ *  @author Yuan Xie.
+ */
+public class ControllerTest {
+
+    @Test
+    public void testMoveDeadline() throws Exception {
+        Controller control =
+            new Controller(new NullView(), null, new TextReporter(),
+                           new StallingPlayer(), new AI());
+        control.setMoveDeadline(50);
+        control.play();
+        assertEquals(BLACK, control.winner());
+        assertNull(control.board().winner());
+
+        AI template = new AI();
+        template.setFixedDepth(20);
+        Player ai = template.create(WHITE, control);
+        control.board().init();
+        CompletableFuture<String> move =
+            ai.requestMove(ForkJoinPool.commonPool());
+        Thread.sleep(200);
+        assertFalse(move.isDone());
+        ai.cancelMove();
+        String text = move.get(Controller.CANCEL_GRACE,
+                               TimeUnit.MILLISECONDS);
+        assertTrue(control.board().isLegal(Move.mv(text)));
+    }
+
+    @Test
+    public void testAbandonedMove() throws Exception {
+        CountingReporter reporter = new CountingReporter();
+        Controller control =
+            new Controller(new NullView(), null, reporter,
+                           new AI(), new AI());
+        AI template = new AI();
+        template.setFixedDepth(20);
+        Player ai = template.create(WHITE, control);
+        control.board().init();
+        CompletableFuture<String> move =
+            ai.requestMove(ForkJoinPool.commonPool());
+        control.board().makeMove(Move.mv("d1-d7(g7)"));
+        Thread.sleep(200);
+        ai.abandonMove();
+        String text = move.get(Controller.CANCEL_GRACE,
+                               TimeUnit.MILLISECONDS);
+        assertTrue(new Board().isLegal(Move.mv(text)));
+        assertEquals(0, reporter._reports);
+    }
+
+    /** A Reporter that counts the moves and search statistics it is
+     *  given. */
+    private static class CountingReporter implements Reporter {
+        @Override
+        public void reportError(String format, Object... args) {
+        }
+
+        @Override
+        public void reportNote(String format, Object... args) {
+        }
+
+        @Override
+        public void reportMove(Move move) {
+            _reports += 1;
+        }
+
+        @Override
+        public void reportSearchInfo(Piece side, SearchStats stats) {
+            _reports += 1;
+        }
+
+        /** Number of moves and statistics reported. */
+        private int _reports;
+    }
+
+    /** A manual player that takes far too long to move, and that quits
+     *  when not playing either side. */
+    private static class StallingPlayer extends Player {
+        StallingPlayer() {
+            super(null, null);
+        }
+
+        StallingPlayer(Piece piece, Controller controller) {
+            super(piece, controller);
+        }
+
+        @Override
+        Player create(Piece piece, Controller controller) {
+            return new StallingPlayer(piece, controller);
+        }
+
+        @Override
+        String myMove() {
+            if (myPiece() != EMPTY) {
+                try {
+                    Thread.sleep(60000);
+                } catch (InterruptedException excp) {
+                    return "quit";
+                }
+            }
+            return "quit";
+        }
+    }
+
+}
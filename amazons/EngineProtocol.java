@@ -0,0 +1,347 @@
+package amazons;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+import static amazons.Piece.*;
+
+/** A line-oriented protocol, in the spirit of UCI for chess, by which a
+ *  GUI or match manager drives the AI through the standard input and
+ *  output, without the human command syntax.  The commands are
+ *
+ *    uci         Identify the engine and its options; ends with "uciok".
+ *    isready     Answered by "readyok" (at once, even while searching).
+ *    setoption name Threads value N
+ *                Search with N threads.
+ *    ucinewgame  Forget the search state of previous games.
+ *    position startpos [moves MOVE...]
+ *    position board SQUARES w|b [moves MOVE...]
+ *                Set the position to the initial one or to the one
+ *                described by SQUARES (see Board.setPosition) with White
+ *                (w) or Black (b) to move, and then make the MOVEs.
+ *    go [depth N] [movetime MS] [infinite]
+ *                Search the current position for the side to move, to at
+ *                most N levels and for at most MS milliseconds, or until
+ *                stopped if infinite.  Without movetime or infinite, the
+ *                search has no time limit if a depth is given, and
+ *                otherwise uses the time limits given to setTimeLimits
+ *                (by default those of Controller, which are none, so
+ *                that the AI searches a fixed small depth).  Reports
+ *                "info ..." with the score from the mover's point of
+ *                view after each completed iteration and when the search
+ *                ends, followed by "bestmove MOVE" ("bestmove none" if
+ *                there is no legal move).  An infinite search that ends
+ *                by itself holds its bestmove until stop or quit.
+ *    stop        End the current search, which then reports its move.
+ *    quit        Stop searching and exit.
+ *
+ *  Moves have the form FROM-TO(SPEAR).  Searches run on a separate
+ *  thread, so that stop and isready are read while searching.  Each side
+ *  is played by one AI for the whole session, so that transposition
+ *  tables carry over from move to move (until ucinewgame).  Errors are
+ *  reported as "info string" lines.
+ *  @author Yuan Xie.
+ */
+class EngineProtocol implements Reporter {
+
+    /** A protocol session reading commands from INPUT and writing
+     *  replies to OUTPUT, playing with AIs made from TEMPLATE. */
+    EngineProtocol(AI template, BufferedReader input, PrintStream output) {
+        _template = template;
+        _input = input;
+        _output = output;
+        _controller = new Controller(new NullView(), null, this,
+                                     template, template);
+        _controller.setShowSearchInfo(true);
+    }
+
+    /** Search under time limits of MOVETIME milliseconds per move and
+     *  GAMETIME milliseconds per game when "go" gives no limit, as for
+     *  Controller.setTimeLimits. */
+    void setTimeLimits(long moveTime, long gameTime) {
+        _controller.setTimeLimits(moveTime, gameTime);
+    }
+
+    /** Read and execute commands until "quit" or the end of the input. */
+    void run() {
+        while (true) {
+            String line;
+            try {
+                line = _input.readLine();
+            } catch (IOException excp) {
+                line = null;
+            }
+            if (line == null) {
+                break;
+            }
+            String[] words = line.trim().split("\\s+");
+            if (words[0].equals("quit")) {
+                break;
+            }
+            try {
+                execute(words);
+            } catch (IllegalArgumentException excp) {
+                send("info string error: %s", excp.getMessage());
+            }
+        }
+        stopSearch();
+    }
+
+    /** Execute the command whose words are WORDS. */
+    private void execute(String[] words) {
+        switch (words[0]) {
+        case "":
+            break;
+        case "uci":
+            send("id name Amazons 61B");
+            send("id author Yuan Xie");
+            send("option name Threads type spin default 1 min 1 max %d",
+                 MAX_THREADS);
+            send("uciok");
+            break;
+        case "isready":
+            send("readyok");
+            break;
+        case "setoption":
+            stopSearch();
+            setOption(words);
+            break;
+        case "ucinewgame":
+            stopSearch();
+            _white = _black = null;
+            break;
+        case "position":
+            stopSearch();
+            setPosition(words);
+            break;
+        case "go":
+            stopSearch();
+            go(words);
+            break;
+        case "stop":
+            stopSearch();
+            break;
+        default:
+            throw Utils.error("unknown command: %s", words[0]);
+        }
+    }
+
+    /** Command "setoption name NAME value VALUE", whose words are
+     *  WORDS. */
+    private void setOption(String[] words) {
+        if (words.length != 5 || !words[1].equals("name")
+            || !words[3].equals("value")) {
+            throw Utils.error("bad setoption");
+        }
+        if (!words[2].equalsIgnoreCase("threads")) {
+            throw Utils.error("unknown option: %s", words[2]);
+        }
+        _template.setThreads(Math.min(parseNumber(words[4]),
+                                      MAX_THREADS));
+        _white = _black = null;
+    }
+
+    /** Command "position ...", whose words are WORDS.  Leaves the
+     *  position unchanged if WORDS are in error. */
+    private void setPosition(String[] words) {
+        Board board = new Board();
+        int k;
+        if (words.length >= 2 && words[1].equals("startpos")) {
+            k = 2;
+        } else if (words.length >= 4 && words[1].equals("board")
+                   && (words[3].equals("w") || words[3].equals("b"))) {
+            board.setPosition(words[2],
+                              words[3].equals("w") ? WHITE : BLACK);
+            k = 4;
+        } else {
+            throw Utils.error("bad position");
+        }
+        if (k < words.length) {
+            if (!words[k].equals("moves")) {
+                throw Utils.error("bad position");
+            }
+            for (k += 1; k < words.length; k += 1) {
+                Move move = Move.mv(words[k]);
+                if (move == null || board.winner() != null
+                    || !board.isLegal(move)) {
+                    throw Utils.error("illegal move: %s", words[k]);
+                }
+                board.makeMove(move);
+            }
+        }
+        _board = board;
+    }
+
+    /** Command "go ...", whose words are WORDS: start searching the
+     *  current position on a new thread. */
+    private void go(String[] words) {
+        int depth = 0;
+        long budget = -1;
+        for (int k = 1; k < words.length; k += 1) {
+            switch (words[k]) {
+            case "depth":
+                k += 1;
+                depth = parseNumber(k < words.length ? words[k] : "");
+                break;
+            case "movetime":
+                k += 1;
+                budget = parseNumber(k < words.length ? words[k] : "")
+                    * Utils.NANOS_PER_MILLI;
+                break;
+            case "infinite":
+                budget = Player.UNLIMITED;
+                break;
+            default:
+                throw Utils.error("bad go option: %s", words[k]);
+            }
+        }
+        if (depth > 0 && budget < 0) {
+            budget = Player.UNLIMITED;
+        }
+        Piece side = _board.turn();
+        if (_board.winner() != null) {
+            send("bestmove none");
+            return;
+        }
+        if (side == WHITE && _white == null) {
+            _white = (AI) _template.create(WHITE, _controller);
+        } else if (side == BLACK && _black == null) {
+            _black = (AI) _template.create(BLACK, _controller);
+        }
+        AI player = side == WHITE ? _white : _black;
+        Board position = new Board(_board);
+        int searchDepth = depth;
+        long searchBudget = budget;
+        boolean infinite = Arrays.asList(words).contains("infinite");
+        CountDownLatch stopped = new CountDownLatch(1);
+        _searcher = player;
+        _stopSignal = stopped;
+        _searchThread = new Thread(() -> {
+            Move move = player.findMove(position, searchBudget, searchDepth);
+            if (infinite) {
+                try {
+                    stopped.await();
+                } catch (InterruptedException excp) {
+                    /* Report the move now. */
+                }
+            }
+            send("bestmove %s", move);
+        }, "amazons-engine");
+        _searchThread.start();
+    }
+
+    /** Stop the current search, if any, and wait for it to report its
+     *  move. */
+    private void stopSearch() {
+        if (_searchThread == null) {
+            return;
+        }
+        _stopSignal.countDown();
+        while (_searchThread.isAlive()) {
+            _searcher.stop();
+            try {
+                _searchThread.join(STOP_POLL_MILLIS);
+            } catch (InterruptedException excp) {
+                throw new IllegalStateException(excp);
+            }
+        }
+        _searchThread = null;
+        _searcher = null;
+        _stopSignal = null;
+    }
+
+    /** Return the value of the numeral WORD. */
+    private static int parseNumber(String word) {
+        try {
+            return Integer.parseInt(word);
+        } catch (NumberFormatException excp) {
+            throw Utils.error("bad number: %s", word);
+        }
+    }
+
+    /** Write a line formatted from FORMAT and ARGS, as for
+     *  String.format, to my output. */
+    private void send(String format, Object... args) {
+        synchronized (_output) {
+            _output.printf(format, args);
+            _output.println();
+            _output.flush();
+        }
+    }
+
+    @Override
+    public void reportError(String format, Object... args) {
+        send("info string " + format, args);
+    }
+
+    @Override
+    public void reportNote(String format, Object... args) {
+        send("info string " + format, args);
+    }
+
+    @Override
+    public void reportMove(Move move) {
+    }
+
+    /** Report STATS, for a search by SIDE, as an "info" line. */
+    @Override
+    public void reportSearchInfo(Piece side, SearchStats stats) {
+        sendInfo(side, stats);
+    }
+
+    /** Report STATS, for a search by SIDE, as an "info" line. */
+    @Override
+    public void reportIteration(Piece side, SearchStats stats) {
+        sendInfo(side, stats);
+    }
+
+    /** Send STATS, for a search by SIDE, as an "info" line, giving the
+     *  score from SIDE's point of view. */
+    private void sendInfo(Piece side, SearchStats stats) {
+        send("info depth %d seldepth %d score cp %d nodes %d time %d nps %d",
+             stats.depth(), stats.selDepth(),
+             side == WHITE ? stats.score() : -stats.score(), stats.nodes(),
+             stats.elapsed() / Utils.NANOS_PER_MILLI, stats.nodesPerSecond());
+    }
+
+    /** The most search threads that setoption allows. */
+    private static final int MAX_THREADS = 256;
+
+    /** Milliseconds between repeated stop requests while waiting for a
+     *  search to end (a request that comes before the search has begun
+     *  is lost). */
+    private static final long STOP_POLL_MILLIS = 10;
+
+    /** The template for my players. */
+    private final AI _template;
+
+    /** Source of commands. */
+    private final BufferedReader _input;
+
+    /** Destination of replies. */
+    private final PrintStream _output;
+
+    /** Controller supplying my players' time limits and passing their
+     *  reports to me. */
+    private final Controller _controller;
+
+    /** The current position. */
+    private Board _board = new Board();
+
+    /** The players for each side, or null if not yet needed. */
+    private AI _white, _black;
+
+    /** The thread running the current search, or null if none. */
+    private Thread _searchThread;
+
+    /** The player searching on _searchThread. */
+    private AI _searcher;
+
+    /** Counted down when the search on _searchThread is to stop, which
+     *  releases the bestmove of an infinite search. */
+    private CountDownLatch _stopSignal;
+
+}
@@ -0,0 +1,142 @@
+package amazons;
+
+import static amazons.Piece.*;
+
+/** A static evaluator of Amazons positions.  Scores are positive when
+ *  White is ahead and negative when Black is.  The score combines four
+ *  terms, each of which is available separately:
+ *  <ul>
+ *  <li> queen territory: the empty squares that one side can reach in
+ *       fewer queen moves than the other;
+ *  <li> king territory: the same, counting king moves, which better
+ *       measures influence early in the game;
+ *  <li> mobility: the number of squares each side's amazons can reach
+ *       in one move;
+ *  <li> blocked amazons: amazons that cannot move at all.
+ *  </ul>
+ *  Distances are found by breadth-first search from all of one side's
+ *  amazons at once, a level at a time on bitboards, so that evaluation
+ *  allocates nothing.  Mobility comes from the counts that Board
+ *  maintains incrementally.  An Evaluator keeps scratch space, and so
+ *  must not be shared between threads.
+ *  @author Yuan Xie.
+ */
+class Evaluator {
+
+    /** Return the heuristic value of BOARD, which should not be a
+     *  finished game. */
+    int evaluate(Board board) {
+        int empty = board.numEmpty();
+        return QUEEN_WEIGHT * queenTerritory(board)
+            + KING_WEIGHT * kingTerritory(board) * empty / INITIAL_EMPTY
+            + MOBILITY_WEIGHT * mobility(board) * empty / INITIAL_EMPTY
+            + BLOCKED_WEIGHT * blockedAmazons(board);
+    }
+
+    /** Return the queen-territory term for BOARD: TERRITORY_UNIT times
+     *  the number of empty squares White reaches in fewer queen moves
+     *  than Black, less the number for which the reverse holds, plus
+     *  (for the side to move) one for each square both reach equally
+     *  fast. */
+    int queenTerritory(Board board) {
+        return territory(board, true);
+    }
+
+    /** Return the king-territory term for BOARD, defined as for
+     *  queenTerritory but with distances measured in king moves through
+     *  empty squares. */
+    int kingTerritory(Board board) {
+        return territory(board, false);
+    }
+
+    /** Return the mobility term for BOARD: the total number of squares
+     *  White's amazons can move to, less the total for Black. */
+    int mobility(Board board) {
+        return board.mobility(WHITE) - board.mobility(BLACK);
+    }
+
+    /** Return the blocked-amazon term for BOARD: the number of Black
+     *  amazons that cannot move, less the number of White ones. */
+    int blockedAmazons(Board board) {
+        return board.numBlocked(BLACK) - board.numBlocked(WHITE);
+    }
+
+    /** Return the territory term for BOARD, measuring distance in queen
+     *  moves if QUEEN, and otherwise in king moves.  Both sides' searches
+     *  advance one level at a time, so that a square first reached by
+     *  one side at a level the other has not reached belongs to it. */
+    private int territory(Board board, boolean queen) {
+        long emptyLo = board.piecesLo(EMPTY),
+            emptyHi = board.piecesHi(EMPTY);
+        long frontWLo = board.piecesLo(WHITE),
+            frontWHi = board.piecesHi(WHITE),
+            frontBLo = board.piecesLo(BLACK),
+            frontBHi = board.piecesHi(BLACK);
+        long seenWLo = 0, seenWHi = 0, seenBLo = 0, seenBHi = 0;
+        int owned = 0, ties = 0;
+        while ((frontWLo | frontWHi | frontBLo | frontBHi) != 0) {
+            expand(frontWLo, frontWHi, emptyLo, emptyHi, queen);
+            long newWLo = _next[0] & ~seenWLo, newWHi = _next[1] & ~seenWHi;
+            expand(frontBLo, frontBHi, emptyLo, emptyHi, queen);
+            long newBLo = _next[0] & ~seenBLo, newBHi = _next[1] & ~seenBHi;
+            owned += Bitboard.count(newWLo & ~newBLo & ~seenBLo,
+                                    newWHi & ~newBHi & ~seenBHi);
+            owned -= Bitboard.count(newBLo & ~newWLo & ~seenWLo,
+                                    newBHi & ~newWHi & ~seenWHi);
+            ties += Bitboard.count(newWLo & newBLo, newWHi & newBHi);
+            seenWLo |= newWLo;
+            seenWHi |= newWHi;
+            seenBLo |= newBLo;
+            seenBHi |= newBHi;
+            frontWLo = newWLo;
+            frontWHi = newWHi;
+            frontBLo = newBLo;
+            frontBHi = newBHi;
+        }
+        int tieSign = board.turn() == WHITE ? 1 : -1;
+        return TERRITORY_UNIT * owned + tieSign * ties;
+    }
+
+    /** Set _next to the set of squares in EMPTYLO, EMPTYHI that are one
+     *  queen move (if QUEEN) or one king move (otherwise) from some
+     *  square of FRONTLO, FRONTHI. */
+    private void expand(long frontLo, long frontHi,
+                        long emptyLo, long emptyHi, boolean queen) {
+        long reachLo = 0, reachHi = 0;
+        for (int dir = 0; dir < 8; dir += 1) {
+            if (queen) {
+                Bitboard.fill(frontLo, frontHi, dir, emptyLo, emptyHi,
+                              _next, 0);
+                reachLo |= _next[0];
+                reachHi |= _next[1];
+            } else {
+                reachLo |= Bitboard.shiftLo(frontLo, frontHi, dir) & emptyLo;
+                reachHi |= Bitboard.shiftHi(frontLo, frontHi, dir) & emptyHi;
+            }
+        }
+        _next[0] = reachLo;
+        _next[1] = reachHi;
+    }
+
+    /** The value of a square of territory in the territory terms,
+     *  relative to a square that both sides reach equally fast (which
+     *  counts 1 for the side to move). */
+    static final int TERRITORY_UNIT = 4;
+
+    /** Weight of the queen-territory term. */
+    private static final int QUEEN_WEIGHT = 3;
+    /** Weight of the king-territory term at the start of the game.  It
+     *  falls to 0 as the board fills. */
+    private static final int KING_WEIGHT = 2;
+    /** Weight of the mobility term at the start of the game.  It falls
+     *  to 0 as the board fills. */
+    private static final int MOBILITY_WEIGHT = 1;
+    /** Weight of each blocked amazon. */
+    private static final int BLOCKED_WEIGHT = 60;
+    /** The number of empty squares in the initial position. */
+    private static final int INITIAL_EMPTY = Board.SIZE * Board.SIZE - 8;
+
+    /** Scratch bitboard (low and high words) for expand. */
+    private final long[] _next = new long[2];
+
+}
@@ -28,6 +28,8 @@ class GUI extends TopLevel implements View, Reporter {
             new LayoutSpec("y", 1,
                            "height", 1,
                            "width", 3));
+        addLabel("", "searchInfo",
+                 new LayoutSpec("y", 2, "width", 3));
     }
 
     /** Response to "Quit" button click. */
@@ -88,6 +90,18 @@ class GUI extends TopLevel implements View, Reporter {
     public void reportMove(Move unused) {
     }
 
+    /** Show a summary of STATS for SIDE below the board, rather than in
+     *  a dialog, since it arrives with every move. */
+    @Override
+    public void reportSearchInfo(Piece side, SearchStats stats) {
+        setLabel("searchInfo",
+                 String.format("%s: depth %d/%d, %d nodes, %d ms, %d/s",
+                               side, stats.depth(), stats.selDepth(),
+                               stats.nodes(),
+                               stats.elapsed() / Utils.NANOS_PER_MILLI,
+                               stats.nodesPerSecond()));
+    }
+
     /** The board widget. */
     private BoardWidget _widget;
 
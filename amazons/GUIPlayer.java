@@ -22,6 +22,11 @@ class GUIPlayer extends Player implements Reporter {
         return new GUIPlayer(piece, controller, _gui);
     }
 
+    @Override
+    boolean interactive() {
+        return true;
+    }
+
     @Override
     String myMove() {
         return _gui.readCommand();
@@ -41,6 +46,11 @@ class GUIPlayer extends Player implements Reporter {
     public void reportMove(Move unused) {
     }
 
+    @Override
+    public void reportSearchInfo(Piece side, SearchStats stats) {
+        _gui.reportSearchInfo(side, stats);
+    }
+
     /** The GUI I use for input. */
     private GUI _gui;
 }
@@ -0,0 +1,156 @@
+package amazons;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.Math.*;
+
+/** A server that hosts many games of Amazons at once, one session per
+ *  TCP connection on a port of the local host.  Each session has its
+ *  own Controller, and so its own Board and players, and the client
+ *  plays as at the console: it sends commands as lines of text and
+ *  receives the prompts, moves, notes and error messages that a
+ *  TextPlayer and TextReporter would use the standard input and output
+ *  for.  Each session runs on its own thread, which spends most of its
+ *  time waiting for the client (Java 17 has no virtual threads, so
+ *  these are ordinary threads from a cached pool).  The searches of
+ *  the automated players of all sessions run on one shared pool with a
+ *  fixed number of workers, each search on a single thread, so that the
+ *  number of sessions does not change how many searches compete for the
+ *  processors.  Each automated player still has its own transposition
+ *  table, allocated when it first searches: sharing one table would let
+ *  sessions evict each other's entries, and let one session clear the
+ *  table under the others.  Tables should therefore be small; Main gives
+ *  them SESSION_HASH_MB megabytes unless told otherwise.
+ *  @author Yuan Xie.
+ */
+class GameServer {
+
+    /** A server listening on PORT of the local host (any free port, if
+     *  PORT is 0), whose sessions use AUTOPLAYER as their default
+     *  automated player and run at most SEARCHES searches at once. */
+    GameServer(int port, Player autoPlayer, int searches)
+        throws IOException {
+        _socket = new ServerSocket(port, BACKLOG,
+                                   InetAddress.getLoopbackAddress());
+        _searchPool =
+            Utils.fixedPool("amazons-search-worker", max(1, searches));
+        _sessions = Utils.cachedPool("amazons-session");
+        _sessions.setKeepAliveTime(SESSION_KEEP_ALIVE, TimeUnit.SECONDS);
+        _autoPlayer = autoPlayer;
+        autoPlayer.setSearchPool(_searchPool);
+    }
+
+    /** Make TEMPLATE available in every session under NAME, as for
+     *  Controller.addEngine.  Its searches run on my search pool. */
+    void addEngine(String name, Player template) {
+        template.setSearchPool(_searchPool);
+        _engines.put(name, template);
+    }
+
+    /** Start each session with time limits of MOVETIME milliseconds per
+     *  move and GAMETIME milliseconds per game, as for
+     *  Controller.setTimeLimits. */
+    void setTimeLimits(long moveTime, long gameTime) {
+        _moveTime = moveTime;
+        _gameTime = gameTime;
+    }
+
+    /** Return the port on which I listen. */
+    int port() {
+        return _socket.getLocalPort();
+    }
+
+    /** Accept connections and start a session for each, until close is
+     *  called. */
+    void serve() {
+        while (!_socket.isClosed()) {
+            Socket client;
+            try {
+                client = _socket.accept();
+            } catch (IOException excp) {
+                if (_socket.isClosed()) {
+                    break;
+                }
+                System.err.printf("Could not accept connection: %s%n",
+                                  excp.getMessage());
+                continue;
+            }
+            _sessions.execute(() -> runSession(client));
+        }
+    }
+
+    /** Stop accepting connections.  Sessions in progress continue. */
+    void close() {
+        try {
+            _socket.close();
+        } catch (IOException excp) {
+            /* Ignore: the socket is closed either way. */
+        }
+    }
+
+    /** Play a session with the client connected to CLIENT, closing the
+     *  connection at the end. */
+    private void runSession(Socket client) {
+        try (Socket socket = client) {
+            PrintStream out = new PrintStream(
+                new BufferedOutputStream(socket.getOutputStream()), true);
+            Controller control =
+                new Controller(new NullView(), null,
+                               new TextReporter(out, out), new TextPlayer(),
+                               _autoPlayer);
+            for (Map.Entry<String, Player> engine : _engines.entrySet()) {
+                control.addEngine(engine.getKey(), engine.getValue());
+            }
+            control.setIO(socket.getInputStream(), out);
+            control.setTimeLimits(_moveTime, _gameTime);
+            out.println("Amazons 61B, version 1.0");
+            control.play();
+            out.flush();
+        } catch (IOException excp) {
+            /* The client went away; nothing more to do. */
+        } catch (IllegalStateException excp) {
+            System.err.printf("Internal error in session: %s%n",
+                              excp.getMessage());
+        }
+    }
+
+    /** Default size in megabytes of the transposition table of each
+     *  automated player in a session (so that a thousand sessions with
+     *  one such player each need about a gigabyte). */
+    static final int SESSION_HASH_MB = 1;
+
+    /** Maximum number of pending connections. */
+    private static final int BACKLOG = 128;
+
+    /** Seconds that an idle session thread is kept for reuse. */
+    private static final long SESSION_KEEP_ALIVE = 60;
+
+    /** The socket on which I accept connections. */
+    private final ServerSocket _socket;
+
+    /** Pool running the searches of all sessions. */
+    private final ThreadPoolExecutor _searchPool;
+
+    /** Pool running the sessions. */
+    private final ThreadPoolExecutor _sessions;
+
+    /** Default automated player of each session. */
+    private final Player _autoPlayer;
+
+    /** Named templates for automated players in each session. */
+    private final Map<String, Player> _engines = new LinkedHashMap<>();
+
+    /** Time limits of each session, in milliseconds. */
+    private long _moveTime = Controller.DEFAULT_MOVE_TIME,
+        _gameTime = Controller.DEFAULT_GAME_TIME;
+
+}
@@ -0,0 +1,50 @@
+package amazons;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.Socket;
+
+/** Tests of the GameServer class.
+ *  @author Yuan Xie.
+ */
+public class GameServerTest {
+
+    @Test
+    public void testServerSession() throws IOException {
+        GameServer server = new GameServer(0, new AI(), 1);
+        Thread serving = new Thread(server::serve);
+        serving.setDaemon(true);
+        serving.start();
+        StringBuilder reply = new StringBuilder();
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(),
+                                        server.port())) {
+            socket.setSoTimeout(10000);
+            PrintStream out = new PrintStream(socket.getOutputStream(), true);
+            out.println("manual black");
+            out.println("d1-d7(g7)");
+            out.println("g10-g8(e8)");
+            out.println("dump");
+            out.println("quit");
+            BufferedReader in = new BufferedReader(
+                new InputStreamReader(socket.getInputStream()));
+            for (String line = in.readLine(); line != null;
+                 line = in.readLine()) {
+                reply.append(line).append("\n");
+            }
+        } finally {
+            server.close();
+        }
+        Board b = new Board();
+        b.makeMove(Move.mv("d1-d7(g7)"));
+        b.makeMove(Move.mv("g10-g8(e8)"));
+        assertTrue(reply.toString().contains("===\n" + b + "===\n"));
+    }
+
+}
@@ -0,0 +1,628 @@
+package amazons;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.Math.*;
+
+import static amazons.Piece.*;
+
+/** A Player that chooses moves by Monte Carlo tree search.  Each
+ *  simulation descends the search tree from the current position,
+ *  choosing at each node the move with the best upper confidence bound
+ *  (UCT) on a value that blends the move's own results with its
+ *  all-moves-as-first (AMAF) results, weighted as in RAVE; it then
+ *  plays a few quick, lightly guided random moves and scores the result
+ *  with an Evaluator, and records the outcome at every node it passed.
+ *  AMAF results are shared among moves that move the same amazon to
+ *  the same square, which makes them plentiful despite the very large
+ *  number of moves.
+ *
+ *  Simulations run in parallel on one shared tree.  A thread descending
+ *  through a move counts a provisional loss for it (a "virtual loss"),
+ *  so that other threads tend to explore elsewhere until its result is
+ *  in.  The part of the tree below my move and my opponent's reply is
+ *  kept for my next move.
+ *  @author Yuan Xie.
+ */
+class MCTSPlayer extends Player {
+
+    /** A new MCTSPlayer with no piece or controller (intended to produce
+     *  a template). */
+    MCTSPlayer() {
+        super(null, null);
+        _threads = 1;
+    }
+
+    /** A new MCTSPlayer playing PIECE under control of CONTROLLER, with
+     *  the same settings as TEMPLATE. */
+    private MCTSPlayer(MCTSPlayer template, Piece piece,
+                       Controller controller) {
+        super(piece, controller);
+        _threads = template._searchPool == null ? template._threads : 1;
+        _playouts = template._playouts;
+        _searchPool = template._searchPool;
+    }
+
+    @Override
+    Player create(Piece piece, Controller controller) {
+        return new MCTSPlayer(this, piece, controller);
+    }
+
+    /** Run simulations on THREADS threads (at least 1), unless I have a
+     *  search pool (see setSearchPool). */
+    void setThreads(int threads) {
+        _threads = max(1, threads);
+    }
+
+    /** If PLAYOUTS > 0, run exactly PLAYOUTS simulations for each move,
+     *  ignoring the clock.  With one thread, the move found then depends
+     *  only on the position and the controller's random seed.  If
+     *  PLAYOUTS is 0, run simulations until the time allotted to the
+     *  move is used, or UNTIMED_PLAYOUTS of them if there are no time
+     *  limits (the default). */
+    void setPlayouts(int playouts) {
+        _playouts = max(0, playouts);
+    }
+
+    @Override
+    String myMove() {
+        return myMove(board());
+    }
+
+    /** Simulates from a copy of the board, which my controller may change
+     *  once it stops waiting. */
+    @Override
+    CompletableFuture<String> requestMove(Executor executor) {
+        Board position = new Board(board());
+        return CompletableFuture.supplyAsync(() -> myMove(position),
+                                             executor);
+    }
+
+    /** Return my move from POSITION, in which it is my turn, reporting
+     *  it unless my choice has been abandoned. */
+    private String myMove(Board position) {
+        Move move = runSearch(() -> findMove(position));
+        report(() -> _controller.reportMove(move));
+        return move.toString();
+    }
+
+    /** Start no more simulations for the current move, so that it is
+     *  chosen from those already run. */
+    @Override
+    void cancelMove() {
+        _remaining.set(0);
+    }
+
+    /** Return a move for me from MODEL, which is unchanged, assuming
+     *  that it is my turn and that there is a move. */
+    private Move findMove(Board model) {
+        long start = System.nanoTime();
+        _root = reusableRoot(model);
+        if (_root == null) {
+            _root = new Node(model.turn());
+        }
+        _treeSize.set(_root.size());
+        _root.expand(model, _treeSize);
+
+        if (_workers == null || _workers.length != _threads) {
+            _workers = new Worker[_threads];
+            for (int k = 0; k < _threads; k += 1) {
+                _workers[k] = new Worker();
+            }
+        }
+        for (Worker worker : _workers) {
+            worker.reset(model, _controller.randInt(Integer.MAX_VALUE));
+        }
+        long budget = _playouts > 0 ? UNLIMITED : timeBudget(model);
+        _deadline = start + budget;
+        if (_playouts > 0) {
+            _remaining.set(_playouts);
+        } else if (budget >= UNLIMITED) {
+            _remaining.set(UNTIMED_PLAYOUTS);
+        } else {
+            _remaining.set(Integer.MAX_VALUE);
+        }
+
+        runWorkers();
+
+        int best = _root.mostVisited();
+        int move = _root._moves[best];
+        _root = _root._children[best];
+        Board after = new Board(model);
+        after.makeSearchMove(move);
+        _treeHash = after.hash();
+        return Move.mv(move);
+    }
+
+    /** Return the node of my tree that represents MODEL, if my tree
+     *  contains the position reached by my last move and MODEL follows
+     *  it by one move.  Otherwise return null. */
+    private Node reusableRoot(Board model) {
+        int last = model.lastMove();
+        if (_root == null || _root._moves == null || last == 0) {
+            return null;
+        }
+        Board before = new Board(model);
+        before.undo();
+        if (before.hash() != _treeHash) {
+            return null;
+        }
+        int k = _root.indexOf(last);
+        return k < 0 ? null : _root._children[k];
+    }
+
+    /** Run simulations on all my threads until my deadline passes or the
+     *  required number have been run. */
+    private void runWorkers() {
+        List<Future<Void>> helpers = new ArrayList<>();
+        for (int k = 1; k < _threads; k += 1) {
+            Worker worker = _workers[k];
+            Callable<Void> task = () -> {
+                worker.simulate();
+                return null;
+            };
+            helpers.add(pool().submit(task));
+        }
+        _workers[0].simulate();
+        try {
+            for (Future<Void> helper : helpers) {
+                helper.get();
+            }
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException excp) {
+            throw new IllegalStateException(excp.getCause());
+        }
+    }
+
+    /** Return the thread pool used for my helper threads, creating it
+     *  if necessary. */
+    private ThreadPoolExecutor pool() {
+        if (_pool == null) {
+            _pool = Utils.fixedPool("amazons-mcts", _threads - 1);
+        }
+        return _pool;
+    }
+
+    /** A node of the search tree: a position, with statistics for each of
+     *  the moves from it.  Statistics are kept in parallel arrays indexed
+     *  by move, and are updated only while holding the node's lock. */
+    private static final class Node {
+
+        /** A node for a position in which TURN is to move. */
+        Node(Piece turn) {
+            _turn = turn;
+        }
+
+        /** Generate my moves, if I have not already done so, assuming
+         *  that BOARD is my position, and count them in TREESIZE.  The
+         *  moves are sorted so that those moving the same amazon to the
+         *  same square are adjacent. */
+        synchronized void expand(Board board, AtomicLong treeSize) {
+            if (_moves != null) {
+                return;
+            }
+            int[] buffer = new int[Board.MAX_MOVES];
+            int n = board.legalMoves(_turn, buffer);
+            for (int i = 0; i < n; i += 1) {
+                buffer[i] = sortKey(buffer[i]);
+            }
+            Arrays.sort(buffer, 0, n);
+            int[] moves = new int[n];
+            for (int i = 0; i < n; i += 1) {
+                moves[i] = unsortKey(buffer[i]);
+            }
+            _children = new Node[n];
+            _visits = new int[n];
+            _wins = new float[n];
+            _amafVisits = new int[n];
+            _amafWins = new float[n];
+            _moves = moves;
+            treeSize.addAndGet(n);
+        }
+
+        /** Return the number of moves stored in me and my
+         *  descendants. */
+        long size() {
+            if (_moves == null) {
+                return 0;
+            }
+            long result = _moves.length;
+            for (Node child : _children) {
+                if (child != null) {
+                    result += child.size();
+                }
+            }
+            return result;
+        }
+
+        /** Return the index of the move with the highest selection value,
+         *  charging it a virtual loss. */
+        synchronized int select() {
+            double logTotal = log(_total + 1);
+            int best = 0;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < _moves.length; i += 1) {
+                int n = _visits[i], an = _amafVisits[i];
+                double value;
+                if (n == 0 && an == 0) {
+                    value = FIRST_PLAY_URGENCY;
+                } else {
+                    double beta =
+                        an / (an + n + RAVE_BIAS * (double) an * n);
+                    double own = n == 0 ? 0 : _wins[i] / n,
+                        amaf = an == 0 ? 0 : _amafWins[i] / an;
+                    value = (1 - beta) * own + beta * amaf;
+                }
+                value += EXPLORATION * sqrt(logTotal / (n + 1));
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = i;
+                }
+            }
+            _visits[best] += VIRTUAL_LOSS;
+            _total += VIRTUAL_LOSS;
+            return best;
+        }
+
+        /** Return my child for move number K, creating it if needed. */
+        synchronized Node child(int k) {
+            if (_children[k] == null) {
+                _children[k] = new Node(_turn.opponent());
+            }
+            return _children[k];
+        }
+
+        /** Return the number of completed simulations through move number
+         *  K. */
+        synchronized int visits(int k) {
+            return _visits[k];
+        }
+
+        /** Record a simulation through move number K with outcome RESULT
+         *  (1 for a win for the side to move here, 0 for a loss), removing
+         *  the virtual loss charged by select.  PLAYED[START .. END-1] are
+         *  the moves of the simulation from here on; also record RESULT
+         *  as an AMAF result for those made by the side to move here. */
+        synchronized void update(int k, float result,
+                                 int[] played, int start, int end) {
+            _visits[k] += 1 - VIRTUAL_LOSS;
+            _total += 1 - VIRTUAL_LOSS;
+            _wins[k] += result;
+            for (int p = start; p < end; p += 2) {
+                int queenMove = played[p] & QUEEN_MOVE_MASK;
+                int lo = lowerBound(queenMove);
+                while (lo < _moves.length
+                       && (_moves[lo] & QUEEN_MOVE_MASK) == queenMove) {
+                    _amafVisits[lo] += 1;
+                    _amafWins[lo] += result;
+                    lo += 1;
+                }
+            }
+        }
+
+        /** Return the index of the move with the most completed
+         *  simulations (the first, if several tie). */
+        synchronized int mostVisited() {
+            int best = 0;
+            for (int i = 1; i < _moves.length; i += 1) {
+                if (_visits[i] > _visits[best]) {
+                    best = i;
+                }
+            }
+            return best;
+        }
+
+        /** Return the index of packed move MOVE among my moves, or -1 if
+         *  it is not one of them. */
+        synchronized int indexOf(int move) {
+            int k = lowerBound(move & QUEEN_MOVE_MASK);
+            for (; k < _moves.length; k += 1) {
+                if (_moves[k] == move) {
+                    return k;
+                }
+                if ((_moves[k] & QUEEN_MOVE_MASK)
+                    != (move & QUEEN_MOVE_MASK)) {
+                    break;
+                }
+            }
+            return -1;
+        }
+
+        /** Return the index of the first of my moves whose amazon move
+         *  (see QUEEN_MOVE_MASK) is at least QUEENMOVE. */
+        private int lowerBound(int queenMove) {
+            int lo = 0, hi = _moves.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if ((_moves[mid] & QUEEN_MOVE_MASK) < queenMove) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        /** The side to move. */
+        private final Piece _turn;
+        /** My moves (packed), or null if not yet generated.  Volatile so
+         *  that a thread that sees them also sees the arrays set up with
+         *  them. */
+        private volatile int[] _moves;
+        /** The children for each move, created as needed. */
+        private Node[] _children;
+        /** Simulations through each move (including virtual losses), and
+         *  AMAF simulations for each move. */
+        private int[] _visits, _amafVisits;
+        /** Wins for the side to move among the simulations counted in
+         *  _visits and _amafVisits. */
+        private float[] _wins, _amafWins;
+        /** Total of _visits. */
+        private int _total;
+    }
+
+    /** Return packed move MOVE rearranged so that numeric order sorts
+     *  first by amazon move and then by spear square. */
+    private static int sortKey(int move) {
+        return (move & QUEEN_MOVE_MASK) << Move.SHIFT
+            | Move.spearIndex(move);
+    }
+
+    /** Return the packed move whose sortKey is KEY. */
+    private static int unsortKey(int key) {
+        return key >>> Move.SHIFT
+            | (key & Move.MASK) << (2 * Move.SHIFT);
+    }
+
+    /** The state of one thread of simulation. */
+    private class Worker {
+
+        /** Prepare to simulate from a copy of MODEL, using random seed
+         *  SEED. */
+        void reset(Board model, long seed) {
+            _board.copy(model);
+            _random.setSeed(seed);
+        }
+
+        /** Run simulations until the deadline passes or none remain to be
+         *  run. */
+        void simulate() {
+            while (_remaining.getAndDecrement() > 0
+                   && System.nanoTime() - _deadline < 0) {
+                simulateOnce();
+            }
+        }
+
+        /** Run one simulation from the root and record its outcome. */
+        private void simulateOnce() {
+            Board board = _board;
+            int depth = 0;
+            Node node = _root;
+            while (true) {
+                if (node._moves == null) {
+                    if (depth > 0
+                        && _path[depth - 1].visits(_pathIndex[depth - 1])
+                            < EXPAND_VISITS
+                        || _treeSize.get() > MAX_TREE_SIZE) {
+                        break;
+                    }
+                    node.expand(board, _treeSize);
+                }
+                if (node._moves.length == 0) {
+                    break;
+                }
+                int k = node.select();
+                _path[depth] = node;
+                _pathIndex[depth] = k;
+                _played[depth] = node._moves[k];
+                board.makeSearchMove(node._moves[k]);
+                depth += 1;
+                node = node.child(k);
+            }
+
+            int n = depth + playout(depth);
+            Piece winner = winner();
+            for (int i = depth - 1; i >= 0; i -= 1) {
+                Node step = _path[i];
+                float result = winner == null ? DRAW
+                    : winner == step._turn ? 1 : 0;
+                step.update(_pathIndex[i], result, _played, i, n);
+            }
+            for (int i = 0; i < n; i += 1) {
+                board.unmakeSearchMove();
+            }
+        }
+
+        /** Play random moves from my board, recording them in _played
+         *  from index START on, until the game ends or PLAYOUT_MOVES
+         *  moves have been made.  Return the number made. */
+        private int playout(int start) {
+            Board board = _board;
+            int made = 0;
+            while (made < PLAYOUT_MOVES
+                   && board.hasLegalMove(board.turn())) {
+                int move = randomMove(board);
+                _played[start + made] = move;
+                board.makeSearchMove(move);
+                made += 1;
+            }
+            return made;
+        }
+
+        /** Return the winner of the simulated game on my board: the side
+         *  that has won if the game is over, and otherwise the side the
+         *  evaluator favors, or null if it favors neither. */
+        private Piece winner() {
+            Board board = _board;
+            if (!board.hasLegalMove(board.turn())) {
+                return board.turn().opponent();
+            }
+            int score = _evaluator.evaluate(board);
+            return score > 0 ? WHITE : score < 0 ? BLACK : null;
+        }
+
+        /** Return a random legal move (packed) for the side to move on
+         *  BOARD, which must have one.  The amazon and its destination are
+         *  chosen uniformly among all amazon moves; the spear is the
+         *  better of two random throws, preferring squares that more
+         *  opposing amazons can reach. */
+        private int randomMove(Board board) {
+            Piece side = board.turn();
+            int k = _random.nextInt(board.mobility(side));
+            long lo = board.piecesLo(side), hi = board.piecesHi(side);
+            Square from;
+            while (true) {
+                int index = Bitboard.nearest(lo, hi, 0);
+                lo &= ~Bitboard.bitLo(index);
+                hi &= ~Bitboard.bitHi(index);
+                from = Square.sq(index);
+                int m = board.mobility(from);
+                if (k < m) {
+                    break;
+                }
+                k -= m;
+            }
+            Square to = nthReachable(board, from, null, k);
+            int spears = countReachable(board, to, from);
+            Square spear =
+                nthReachable(board, to, from, _random.nextInt(spears));
+            Square other =
+                nthReachable(board, to, from, _random.nextInt(spears));
+            Piece opponent = side.opponent();
+            if (board.reach(opponent, other) > board.reach(opponent, spear)) {
+                spear = other;
+            }
+            return Move.pack(from.index(), to.index(), spear.index());
+        }
+
+        /** Return the number of squares reachable from FROM on BOARD,
+         *  treating ASEMPTY (if not null) as empty. */
+        private int countReachable(Board board, Square from, Square asEmpty) {
+            int count = 0;
+            for (int dir = 0; dir < 8; dir += 1) {
+                for (Square s : from.ray(dir)) {
+                    if (board.get(s) != EMPTY && s != asEmpty) {
+                        break;
+                    }
+                    count += 1;
+                }
+            }
+            return count;
+        }
+
+        /** Return square number K (numbering from 0) of those reachable
+         *  from FROM on BOARD, treating ASEMPTY (if not null) as empty, in
+         *  order of direction and distance. */
+        private Square nthReachable(Board board, Square from, Square asEmpty,
+                                    int k) {
+            for (int dir = 0; dir < 8; dir += 1) {
+                for (Square s : from.ray(dir)) {
+                    if (board.get(s) != EMPTY && s != asEmpty) {
+                        break;
+                    }
+                    if (k == 0) {
+                        return s;
+                    }
+                    k -= 1;
+                }
+            }
+            throw new IllegalStateException("no such square");
+        }
+
+        /** This thread's board, which is at the root position between
+         *  simulations. */
+        private final Board _board = new Board();
+        /** This thread's evaluator. */
+        private final Evaluator _evaluator = new Evaluator();
+        /** This thread's random number generator. */
+        private final Random _random = new Random();
+        /** The nodes on the path of the current simulation. */
+        private final Node[] _path = new Node[Board.SIZE * Board.SIZE];
+        /** The index of the move taken at each node of _path. */
+        private final int[] _pathIndex = new int[Board.SIZE * Board.SIZE];
+        /** The moves of the current simulation, in order. */
+        private final int[] _played = new int[Board.SIZE * Board.SIZE];
+    }
+
+    /** The weight given to AMAF results: the smaller it is, the longer
+     *  they dominate a move's own results. */
+    private static final double RAVE_BIAS = 0.002;
+
+    /** The weight of the exploration term of the selection value. */
+    private static final double EXPLORATION = 0.25;
+
+    /** Selection value of a move with no results at all. */
+    private static final double FIRST_PLAY_URGENCY = 1.1;
+
+    /** The number of losses charged provisionally to a move while a
+     *  simulation through it is in progress. */
+    private static final int VIRTUAL_LOSS = 1;
+
+    /** The result recorded for a simulation that ends level. */
+    private static final float DRAW = 0.5f;
+
+    /** The number of simulations through a position before its node is
+     *  expanded. */
+    private static final int EXPAND_VISITS = 4;
+
+    /** The number of simulations run for each move when my controller
+     *  sets no time limits and setPlayouts has not been called. */
+    private static final int UNTIMED_PLAYOUTS = 2000;
+
+    /** The greatest number of moves stored in the tree, which limits its
+     *  memory use. */
+    private static final long MAX_TREE_SIZE = 1 << 21;
+
+    /** The number of random moves in a simulation after leaving the
+     *  tree. */
+    private static final int PLAYOUT_MOVES = 6;
+
+    /** Mask selecting the amazon move (from and to squares) of a packed
+     *  move. */
+    private static final int QUEEN_MOVE_MASK = (1 << (2 * Move.SHIFT)) - 1;
+
+    /** The number of threads I simulate with. */
+    private int _threads;
+
+    /** If positive, the number of simulations per move (see
+     *  setPlayouts). */
+    private int _playouts;
+
+    /** The root of my search tree, or null if none. */
+    private Node _root;
+
+    /** The hash of the position reached by my last move, which is that of
+     *  _root between my moves. */
+    private long _treeHash;
+
+    /** The number of moves stored in my tree. */
+    private final AtomicLong _treeSize = new AtomicLong();
+
+    /** The number of simulations still to be started for the current
+     *  move. */
+    private final AtomicInteger _remaining = new AtomicInteger();
+
+    /** The value of System.nanoTime() at which simulations for the
+     *  current move must stop. */
+    private long _deadline;
+
+    /** One Worker for each of my threads. */
+    private Worker[] _workers;
+
+    /** The pool running my helper threads, or null if not yet
+     *  needed. */
+    private ThreadPoolExecutor _pool;
+
+}
@@ -1,9 +1,14 @@
 package amazons;
 
 import java.util.List;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.PrintStream;
 
 import static amazons.Utils.error;
@@ -19,20 +24,55 @@ public class Main {
     public static void main(String... args) {
 
         CommandArgs options =
-            new CommandArgs("--display --log={0,1} --={0,2}", args);
+            new CommandArgs("--display --log={0,1} --hash=(\\d+){0,1}"
+                            + " --offheap --time=(\\d+(?:,\\d+)?){0,1}"
+                            + " --threads=(\\d+){0,1} --depth=(\\d+){0,1}"
+                            + " --stats --engine=(ai|mcts){0,1}"
+                            + " --playouts=(\\d+){0,1} --solve=(\\d+){0,1}"
+                            + " --perft=(\\d+){0,1} --divide"
+                            + " --statsfile={0,1} --ponder"
+                            + " --tournament=(\\d+){0,1}"
+                            + " --opponent=(ai|mcts){0,1}"
+                            + " --concurrency=(\\d+){0,1}"
+                            + " --sprt=(-?\\d+,-?\\d+){0,1}"
+                            + " --openings=(\\d+){0,1}"
+                            + " --seed=(\\d+){0,1} --batch --uci"
+                            + " --server=(\\d+){0,1} --searches=(\\d+){0,1}"
+                            + " --deadline=(\\d+){0,1}"
+                            + " --={0,2}", args);
         if (!options.ok()) {
             System.err.println("Usage: java amazons.Main [--display]"
-                               + " [--log=FILE] [INPUT [OUTPUT]]");
+                               + " [--log=FILE] [--hash=MB] [--offheap]"
+                               + " [--time=MOVESECS[,GAMESECS]]"
+                               + " [--threads=N] [--depth=N] [--stats]"
+                               + " [--statsfile=FILE] [--ponder]"
+                               + " [--engine=ai|mcts] [--playouts=N]"
+                               + " [--solve=EMPTY]"
+                               + " [--perft=DEPTH [--divide]]"
+                               + " [--tournament=GAMES"
+                               + " [--opponent=ai|mcts]"
+                               + " [--concurrency=N] [--seed=N]"
+                               + " [--sprt=ELO0,ELO1] [--openings=PLIES]]"
+                               + " [--batch] [--uci]"
+                               + " [--server=PORT [--searches=N]]"
+                               + " [--deadline=MILLIS]"
+                               + " [INPUT [OUTPUT]]");
             System.exit(1);
         }
 
+        boolean batch = options.contains("--batch");
         List<String> files = options.get("--");
+        if (batch) {
+            System.setOut(bufferedStream(
+                new FileOutputStream(FileDescriptor.out)));
+        }
         if (!files.isEmpty()) {
             try {
                 System.setIn(new FileInputStream(files.get(0)));
                 if (files.size() > 1) {
                     FileOutputStream out = new FileOutputStream(files.get(1));
-                    System.setOut(new PrintStream(out, true));
+                    System.setOut(batch ? bufferedStream(out)
+                                  : new PrintStream(out, true));
                 }
             } catch (IOException excp) {
                 System.err.printf("Could not open file: %s%n",
@@ -42,18 +82,129 @@ public class Main {
         }
 
         Controller control = getController(options);
+        if (options.contains("--perft")) {
+            control.perft(options.getInt("--perft"),
+                          options.contains("--divide"));
+            System.out.flush();
+            System.exit(0);
+        }
+        if (options.contains("--uci")) {
+            EngineProtocol protocol =
+                new EngineProtocol((AI) control.engine("ai"),
+                                   new BufferedReader(
+                                       new InputStreamReader(System.in)),
+                                   System.out);
+            protocol.setTimeLimits(control.moveTimeLimit(),
+                                   control.gameTimeLimit());
+            protocol.run();
+            System.out.flush();
+            System.exit(0);
+        }
+        if (options.contains("--server")) {
+            serve(options, control);
+            System.exit(0);
+        }
+        if (options.contains("--tournament")) {
+            playTournament(options, control);
+            System.out.flush();
+            System.exit(0);
+        }
         System.out.println("Amazons 61B, version 1.0");
 
         try {
             control.play();
+            System.out.flush();
             System.exit(0);
         } catch (IllegalStateException excp) {
+            System.out.flush();
             System.err.printf("Internal error: %s%n", excp.getMessage());
             System.exit(1);
         }
 
     }
 
+    /** Size in bytes of the output buffers in batch mode. */
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+
+    /** Return a PrintStream that buffers output to OUT, flushing only
+     *  when full or when flushed explicitly. */
+    private static PrintStream bufferedStream(OutputStream out) {
+        return new PrintStream(
+            new BufferedOutputStream(out, OUTPUT_BUFFER_SIZE), false);
+    }
+
+    /** Play the tournament indicated by OPTIONS between the engine
+     *  selected by --engine and the one selected by --opponent, as
+     *  configured in CONTROL, reporting on the standard output. */
+    private static void playTournament(CommandArgs options,
+                                       Controller control) {
+        String first = options.contains("--engine")
+            ? options.getFirst("--engine") : "ai";
+        String second = options.contains("--opponent")
+            ? options.getFirst("--opponent") : "ai";
+        Tournament tournament =
+            new Tournament(control.engine(first), control.engine(second),
+                           options.getInt("--tournament"));
+        tournament.setConcurrency(
+            options.contains("--concurrency")
+            ? options.getInt("--concurrency")
+            : Runtime.getRuntime().availableProcessors());
+        if (options.contains("--seed")) {
+            tournament.setSeed(Long.parseLong(options.getFirst("--seed")));
+        }
+        if (options.contains("--sprt")) {
+            String[] elos = options.getFirst("--sprt").split(",");
+            try {
+                tournament.setSprt(Integer.parseInt(elos[0]),
+                                   Integer.parseInt(elos[1]),
+                                   Tournament.DEFAULT_SPRT_ERROR,
+                                   Tournament.DEFAULT_SPRT_ERROR);
+            } catch (IllegalArgumentException excp) {
+                System.err.printf("Bad --sprt: %s%n", excp.getMessage());
+                System.exit(1);
+            }
+        }
+        if (options.contains("--openings")) {
+            tournament.setOpeningPlies(options.getInt("--openings"));
+        }
+        tournament.setTimeLimits(control.moveTimeLimit(),
+                                 control.gameTimeLimit());
+        if (options.contains("--deadline")) {
+            tournament.setMoveDeadline(options.getInt("--deadline"));
+        }
+        System.out.printf("Tournament: %s vs %s%n", first, second);
+        tournament.run(new TextReporter());
+    }
+
+    /** Run a GameServer on the port given by OPTIONS, whose sessions
+     *  use the engines and time limits of CONTROL, with the default
+     *  automated player selected by --engine. */
+    private static void serve(CommandArgs options, Controller control) {
+        String engine = options.contains("--engine")
+            ? options.getFirst("--engine") : "ai";
+        int searches = options.contains("--searches")
+            ? options.getInt("--searches")
+            : Runtime.getRuntime().availableProcessors();
+        GameServer server;
+        try {
+            server = new GameServer(options.getInt("--server"),
+                                    control.engine(engine), searches);
+        } catch (IOException excp) {
+            System.err.printf("Could not start server: %s%n",
+                              excp.getMessage());
+            System.exit(1);
+            return;
+        }
+        server.addEngine("ai", control.engine("ai"));
+        server.addEngine("mcts", control.engine("mcts"));
+        server.setTimeLimits(control.moveTimeLimit(),
+                             control.gameTimeLimit());
+        System.out.printf("Amazons server listening on port %d%n",
+                          server.port());
+        System.out.flush();
+        server.serve();
+    }
+
     /** Return an appropriate Controller as indicated by OPTIONS. */
     private static Controller getController(CommandArgs options) {
         Player manualPlayer;
@@ -77,12 +228,76 @@ public class Main {
         log = null;
         if (options.contains("--log")) {
             try {
-                log = new PrintStream(options.getFirst("--log"));
+                if (options.contains("--batch")) {
+                    log = bufferedStream(
+                        new FileOutputStream(options.getFirst("--log")));
+                } else {
+                    log = new PrintStream(options.getFirst("--log"));
+                }
             } catch (IOException excp) {
                 throw error("Could not open log file");
             }
         }
 
-        return new Controller(view, log, reporter, manualPlayer, new AI());
+        int hashMB = options.contains("--server")
+            ? GameServer.SESSION_HASH_MB : TranspositionTable.DEFAULT_MB;
+        if (options.contains("--hash")) {
+            hashMB = options.getInt("--hash");
+        }
+        AI ai = new AI(hashMB, options.contains("--offheap"));
+        if (options.contains("--threads")) {
+            ai.setThreads(options.getInt("--threads"));
+        }
+        if (options.contains("--depth")) {
+            ai.setFixedDepth(options.getInt("--depth"));
+        }
+        ai.setPondering(options.contains("--ponder"));
+        if (options.contains("--solve")) {
+            ai.setSolverThreshold(options.getInt("--solve"));
+        }
+        MCTSPlayer mcts = new MCTSPlayer();
+        if (options.contains("--threads")) {
+            mcts.setThreads(options.getInt("--threads"));
+        }
+        if (options.contains("--playouts")) {
+            mcts.setPlayouts(options.getInt("--playouts"));
+        }
+        Player autoPlayer = ai;
+        if (options.contains("--engine")
+            && options.getFirst("--engine").equals("mcts")) {
+            autoPlayer = mcts;
+        }
+
+        Controller result =
+            new Controller(view, log, reporter, manualPlayer, autoPlayer);
+        result.addEngine("ai", ai);
+        result.setShowSearchInfo(options.contains("--stats"));
+        result.setBatch(options.contains("--batch"));
+        if (options.contains("--deadline")) {
+            result.setMoveDeadline(options.getInt("--deadline"));
+        }
+        if (options.contains("--statsfile")) {
+            try {
+                String name = options.getFirst("--statsfile");
+                result.setStatsFile(options.contains("--batch")
+                                    ? bufferedStream(new FileOutputStream(name))
+                                    : new PrintStream(name));
+            } catch (IOException excp) {
+                throw error("Could not open statistics file");
+            }
+        }
+        result.addEngine("mcts", mcts);
+        int threads = options.contains("--threads")
+            ? options.getInt("--threads") : 1;
+        result.setPerft(new Perft(threads, options.contains("--hash")
+                                  ? options.getInt("--hash") : 0));
+        if (options.contains("--time")) {
+            String[] limits = options.getFirst("--time").split(",");
+            long move = Long.parseLong(limits[0]);
+            long game = limits.length > 1 ? Long.parseLong(limits[1]) : 0;
+            result.setTimeLimits(move * Utils.MILLIS_PER_SECOND,
+                                 game * Utils.MILLIS_PER_SECOND);
+        }
+        return result;
     }
 }
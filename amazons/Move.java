@@ -1,94 +1,212 @@
 package amazons;
 
-import java.util.regex.Pattern;
-import java.util.regex.Matcher;
-
 import static amazons.Square.sq;
-import static amazons.Square.SQ;
 
-/** A move in the game of Amazons. As for Squares, Moves are immutable
- *  and unique: there is only one move object for each possible move
- *  (generated by the factory method  mv, the constructor being private).
- *  As for Squares, you can freely use == to compare Moves.
+/** A move in the game of Amazons.  Moves are immutable values, made by
+ *  the factory methods mv (the constructor being private); compare them
+ *  with equals.  The engine itself works on moves packed into ints (see
+ *  pack), and creates Moves only to exchange moves with the Controller
+ *  and Reporters.  A Move formats its text only when first printed.
  *  @author P. N. Hilfinger
  */
 final class Move {
 
-    /** The syntax for a move, using either the forms FROM-TO(SPEAR) or
-     *  FROM TO SPEAR.  Either groups 1-3 or 4-6 in a match from this pattern
-     *  contain FROM, TO, and SPEAR (the other 3 groups are null in each
-     *  case. */
-    static final Pattern MOVE_PATTERN =
-        Pattern.compile(String.format("%s-%s\\(%s\\)|%s\\s+%s\\s+%s",
-                                      SQ, SQ, SQ, SQ, SQ, SQ));
-
     /** Return the square moved from. */
     Square from() {
-        return _from;
+        return sq(fromIndex(_move));
     }
 
     /** Return the square moved to. */
     Square to() {
-        return _to;
+        return sq(toIndex(_move));
     }
 
     /** Return the destination of the spear. */
     Square spear() {
-        return _spear;
+        return sq(spearIndex(_move));
     }
 
-    /** Return the unique Move FROM-TO(SPEAR). */
+    /** Return the Move FROM-TO(SPEAR). */
     static Move mv(Square from, Square to, Square spear) {
-        if (MOVES[from.index()][to.index()][spear.index()] == null) {
-            MOVES[from.index()][to.index()][spear.index()] =
-                new Move(from, to, spear);
-        }
-        return MOVES[from.index()][to.index()][spear.index()];
+        return new Move(pack(from.index(), to.index(), spear.index()));
+    }
+
+    /** Return the Move whose packed form (see pack) is MOVE. */
+    static Move mv(int move) {
+        return new Move(move);
+    }
+
+    /** Return the move FROM-TO(SPEAR), given as square indices, packed
+     *  into an int as FROM | TO << 7 | SPEAR << 14.  Move generation and
+     *  search use this form to avoid creating Move objects. */
+    static int pack(int from, int to, int spear) {
+        return from | (to << SHIFT) | (spear << (2 * SHIFT));
+    }
+
+    /** Return the index of the square moved from in packed move MOVE. */
+    static int fromIndex(int move) {
+        return move & MASK;
+    }
+
+    /** Return the index of the square moved to in packed move MOVE. */
+    static int toIndex(int move) {
+        return (move >>> SHIFT) & MASK;
+    }
+
+    /** Return the index of the spear's square in packed move MOVE. */
+    static int spearIndex(int move) {
+        return (move >>> (2 * SHIFT)) & MASK;
+    }
+
+    /** Return the packed form of this move. */
+    int pack() {
+        return _move;
+    }
+
+    /** Return the text FROM-TO(SPEAR) of the packed move MOVE. */
+    static String toString(int move) {
+        return String.format("%s-%s(%s)", sq(fromIndex(move)),
+                             sq(toIndex(move)), sq(spearIndex(move)));
     }
 
     /** Return the Move denoted by STR, if STR denotes a move with
      *  valid syntax in which the piece move and spear throw are proper
      *  queen moves, and null otherwise. */
     static Move mv(String str) {
-        _moveMatcher.reset(str);
-        if (_moveMatcher.matches()) {
-            int k = _moveMatcher.group(1) != null ? 1 : 4;
-            Square from = sq(_moveMatcher.group(k)),
-                to = sq(_moveMatcher.group(k + 1)),
-                spear = sq(_moveMatcher.group(k + 2));
-            if (from.isQueenMove(to) && to.isQueenMove(spear)) {
-                return mv(from, to, spear);
-            }
-        }
-        return null;
+        int move = parse(str);
+        return move > 0 ? mv(move) : null;
     }
 
     /** Return true iff STR has the right format for a Move, ignoring whether
      *  its piece-move and spear-throw are valid queen moves. */
     static boolean isGrammaticalMove(String str) {
-        _moveMatcher.reset(str);
-        return _moveMatcher.matches();
+        return parse(str) >= 0;
+    }
+
+    /** Return the packed form of the move denoted by STR, which has
+     *  one of the forms FROM-TO(SPEAR) or FROM TO SPEAR (the squares
+     *  separated by any whitespace), or 0 if STR has the right form but
+     *  its piece move or spear throw is not a queen move, or -1 if STR
+     *  does not have the right form.  Every command that a player
+     *  sends is checked here, so STR is scanned by hand rather than
+     *  matched against a regular expression. */
+    static int parse(String str) {
+        int from = squareAt(str, 0);
+        if (from < 0) {
+            return -1;
+        }
+        int k = squareEnd(from, 0);
+        int to, spear;
+        if (k < str.length() && str.charAt(k) == '-') {
+            to = squareAt(str, k + 1);
+            if (to < 0) {
+                return -1;
+            }
+            k = squareEnd(to, k + 1);
+            if (k >= str.length() || str.charAt(k) != '(') {
+                return -1;
+            }
+            spear = squareAt(str, k + 1);
+            if (spear < 0) {
+                return -1;
+            }
+            k = squareEnd(spear, k + 1);
+            if (k + 1 != str.length() || str.charAt(k) != ')') {
+                return -1;
+            }
+        } else {
+            int start = skipWhitespace(str, k);
+            to = start > k ? squareAt(str, start) : -1;
+            if (to < 0) {
+                return -1;
+            }
+            k = squareEnd(to, start);
+            start = skipWhitespace(str, k);
+            spear = start > k ? squareAt(str, start) : -1;
+            if (spear < 0 || squareEnd(spear, start) != str.length()) {
+                return -1;
+            }
+        }
+        if (sq(from).isQueenMove(sq(to)) && sq(to).isQueenMove(sq(spear))) {
+            return pack(from, to, spear);
+        }
+        return 0;
+    }
+
+    /** Return the index of the square whose text (e.g. a4 or j10)
+     *  starts at position K of STR, or -1 if none does.  A 1 followed by
+     *  0 is read as row 10, since no well-formed move has a square
+     *  followed by 0. */
+    private static int squareAt(String str, int k) {
+        if (k + 1 >= str.length()) {
+            return -1;
+        }
+        char col = str.charAt(k), row = str.charAt(k + 1);
+        if (col < 'a' || col > 'j' || row < '1' || row > '9') {
+            return -1;
+        }
+        if (row == '1' && k + 2 < str.length() && str.charAt(k + 2) == '0') {
+            return (Board.SIZE - 1) * Board.SIZE + col - 'a';
+        }
+        return (row - '1') * Board.SIZE + col - 'a';
+    }
+
+    /** Return the position just after the text of the square with index
+     *  INDEX, which starts at position K. */
+    private static int squareEnd(int index, int k) {
+        return k + (index >= (Board.SIZE - 1) * Board.SIZE ? 3 : 2);
+    }
+
+    /** Return the position of the first character at or after position K
+     *  of STR that is not whitespace (space, tab, newline, vertical tab,
+     *  form feed or carriage return). */
+    static int skipWhitespace(String str, int k) {
+        while (k < str.length() && isWhitespace(str.charAt(k))) {
+            k += 1;
+        }
+        return k;
+    }
+
+    /** Return true iff C is whitespace in the sense of \s in a regular
+     *  expression. */
+    static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\013'
+            || c == '\f' || c == '\r';
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof Move && ((Move) obj)._move == _move;
+    }
+
+    @Override
+    public int hashCode() {
+        return _move;
     }
 
     @Override
     public String toString() {
+        if (_str == null) {
+            _str = toString(_move);
+        }
         return _str;
     }
 
-    /** Construct the Move FROM-TO(SPEAR). */
-    private Move(Square from, Square to, Square spear) {
-        _from = from; _to = to; _spear = spear;
-        _str = String.format("%s-%s(%s)", from, to, spear);
+    /** Construct the Move whose packed form is MOVE. */
+    private Move(int move) {
+        _move = move;
     }
 
-    /** The cache of all Moves created. */
-    private static final Move[][][] MOVES = new Move[100][100][100];
+    /** Width in bits of each square index in a packed move. */
+    static final int SHIFT = 7;
+
+    /** Mask extracting one square index from a shifted packed move. */
+    static final int MASK = (1 << SHIFT) - 1;
 
-    /** The components of a Move. */
-    private final Square _from, _to, _spear;
-    /** The printed form of a Move. */
+    /** The packed form of this Move. */
+    private final int _move;
+    /** The printed form of this Move, or null if not yet needed.  Racing
+     *  threads may each format it, but always to the same String. */
     private String _str;
-    /**  A utility Matcher for moves, using MOVE_PATTERN. */
-    private static Matcher _moveMatcher = MOVE_PATTERN.matcher("");
 }
 
@@ -0,0 +1,125 @@
+package amazons;
+
+import java.util.Arrays;
+
+/** Orders the moves at a search node so that those most likely to cause
+ *  a cutoff are tried first: the best move recorded for the position in
+ *  the transposition table, then the killer moves for the current ply
+ *  (moves that recently caused cutoffs at the same ply elsewhere in the
+ *  tree), then the rest by history score (how often a move with the same
+ *  piece move, and one with the same spear square, caused a cutoff) plus
+ *  a cheap static score that favors throwing spears into squares the
+ *  opponent can reach.  A MoveOrderer keeps per-search state and scratch
+ *  space, and so must not be shared between threads.
+ *  @author Yuan Xie.
+ */
+class MoveOrderer {
+
+    /** A MoveOrderer for searches of at most MAXPLY plies. */
+    MoveOrderer(int maxPly) {
+        _killers = new int[maxPly + 1][KILLERS];
+    }
+
+    /** Forget all killer moves and history. */
+    void clear() {
+        for (int[] killers : _killers) {
+            Arrays.fill(killers, 0);
+        }
+        Arrays.fill(_history, 0);
+        Arrays.fill(_spearHistory, 0);
+    }
+
+    /** Prepare for a new search: forget killer moves, and reduce the
+     *  weight of history gathered in earlier searches. */
+    void age() {
+        for (int[] killers : _killers) {
+            Arrays.fill(killers, 0);
+        }
+        halveHistory();
+    }
+
+    /** Sort the first N packed moves in MOVES, which are moves from BOARD
+     *  at ply PLY, best first.  HASHMOVE (0 if none) is the best move
+     *  recorded for BOARD in the transposition table. */
+    void order(Board board, int[] moves, int n, int hashMove, int ply) {
+        Piece opponent = board.turn().opponent();
+        int[] killers = _killers[ply];
+        for (int i = 0; i < n; i += 1) {
+            int move = moves[i];
+            int score;
+            if (move == hashMove) {
+                score = HASH_SCORE;
+            } else if (move == killers[0]) {
+                score = KILLER_SCORE;
+            } else if (move == killers[1]) {
+                score = KILLER_SCORE - 1;
+            } else {
+                int from = Move.fromIndex(move), to = Move.toIndex(move),
+                    spear = Move.spearIndex(move);
+                score = _history[from * SQUARES + to] + _spearHistory[spear]
+                    + SPEAR_REACH_SCORE
+                        * board.reach(opponent, Square.sq(spear));
+            }
+            _keys[i] = ((long) (HASH_SCORE - score) << Integer.SIZE) | move;
+        }
+        Arrays.sort(_keys, 0, n);
+        for (int i = 0; i < n; i += 1) {
+            moves[i] = (int) _keys[i];
+        }
+    }
+
+    /** Record that MOVE caused a cutoff at ply PLY in a search with DEPTH
+     *  levels remaining. */
+    void cutoff(int move, int depth, int ply) {
+        int[] killers = _killers[ply];
+        if (killers[0] != move) {
+            killers[1] = killers[0];
+            killers[0] = move;
+        }
+        int bonus = depth * depth;
+        int k = Move.fromIndex(move) * SQUARES + Move.toIndex(move);
+        _history[k] += bonus;
+        _spearHistory[Move.spearIndex(move)] += bonus;
+        if (_history[k] > MAX_HISTORY
+            || _spearHistory[Move.spearIndex(move)] > MAX_HISTORY) {
+            halveHistory();
+        }
+    }
+
+    /** Halve all history scores. */
+    private void halveHistory() {
+        for (int i = 0; i < _history.length; i += 1) {
+            _history[i] >>= 1;
+        }
+        for (int i = 0; i < _spearHistory.length; i += 1) {
+            _spearHistory[i] >>= 1;
+        }
+    }
+
+    /** The number of squares on the board. */
+    private static final int SQUARES = Board.SIZE * Board.SIZE;
+    /** The number of killer moves kept per ply. */
+    private static final int KILLERS = 2;
+    /** Ordering score of the hash move. */
+    private static final int HASH_SCORE = 1 << 30;
+    /** Ordering score of the first killer move. */
+    private static final int KILLER_SCORE = 1 << 29;
+    /** History scores are halved when one exceeds this, keeping them
+     *  below the killer scores. */
+    private static final int MAX_HISTORY = 1 << 26;
+    /** Static score for each opposing amazon that can reach the square
+     *  a spear is thrown to. */
+    private static final int SPEAR_REACH_SCORE = 8;
+
+    /** _killers[p] holds the killer moves for ply p, most recent
+     *  first. */
+    private final int[][] _killers;
+    /** History scores indexed by from * SQUARES + to. */
+    private final int[] _history = new int[SQUARES * SQUARES];
+    /** History scores indexed by spear square. */
+    private final int[] _spearHistory = new int[SQUARES];
+    /** Sort keys: ordering score (inverted) in the upper half, move in the
+     *  lower half. */
+    private final long[] _keys = new long[Board.MAX_MOVES];
+
+}
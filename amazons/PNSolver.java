@@ -0,0 +1,305 @@
+package amazons;
+
+import java.util.Arrays;
+
+import static java.lang.Math.*;
+
+/** An exact solver for Amazons positions using depth-first proof-number
+ *  search (df-pn).  Every node carries a proof number (a measure of how
+ *  much more work it would take to prove that the side to move wins)
+ *  and a disproof number (the same, for proving that it loses).  The
+ *  search always expands the most promising node under thresholds that
+ *  let it stay deep in the tree until some other line becomes more
+ *  promising, so it needs memory only for its table.
+ *
+ *  The numbers live in a fixed-size table of my own, indexed by Zobrist
+ *  key; an entry may be overwritten, which costs only repeated work,
+ *  and the entries that cost least to find are overwritten first.
+ *  New nodes whose outcome Board.decidedWinner can settle (partitioned
+ *  boards) are proved or disproved on the spot.  Since every move fills
+ *  a square, positions never repeat, and the search graph has no
+ *  cycles.  A PNSolver is not safe for use by several threads.
+ *  @author Yuan Xie.
+ */
+class PNSolver {
+
+    /** The default size of a solver's table, in megabytes. */
+    static final int DEFAULT_MB = 16;
+
+    /** The default limit on nodes expanded by one call to solve. */
+    static final long DEFAULT_NODES = 1000000;
+
+    /** A solver whose table occupies about MEGABYTES megabytes. */
+    PNSolver(int megabytes) {
+        int entries = (int) Long.highestOneBit(
+            max(1, min(MAX_ENTRIES,
+                       (long) megabytes * (1 << 20) / ENTRY_BYTES)));
+        _keys = new long[entries];
+        _proof = new int[entries];
+        _disproof = new int[entries];
+        _work = new int[entries];
+        _mask = entries - BUCKET;
+        _nodeBudget = DEFAULT_NODES;
+    }
+
+    /** Limit each call of solve to expanding NODES nodes. */
+    void setNodeBudget(long nodes) {
+        _nodeBudget = max(1, nodes);
+    }
+
+    /** Return the winner of BOARD with best play, or null if that could
+     *  not be proved within my node budget or before System.nanoTime()
+     *  reaches DEADLINE.  BOARD is unchanged on return.  Afterwards,
+     *  bestMove gives a winning move if the side to move wins. */
+    Piece solve(Board board, long deadline) {
+        SolverEvent event = new SolverEvent();
+        event.begin();
+        Piece winner = solve0(board, deadline);
+        event.end();
+        if (event.shouldCommit()) {
+            event.empty = board.numEmpty();
+            event.winner = winner == null ? null : winner.toString();
+            event.nodes = _nodes;
+            event.commit();
+        }
+        return winner;
+    }
+
+    /** Return winner of BOARD as for solve(BOARD, DEADLINE), with no
+     *  deadline. */
+    Piece solve(Board board) {
+        return solve(board, System.nanoTime() + Player.UNLIMITED);
+    }
+
+    /** Return a winning move (packed) for the side to move in the
+     *  position last solved, if solve found that it wins, and otherwise
+     *  0. */
+    int bestMove() {
+        return _bestMove;
+    }
+
+    /** Return the number of nodes expanded by the last call of solve. */
+    long nodes() {
+        return _nodes;
+    }
+
+    /** Remove all entries from my table. */
+    void clear() {
+        Arrays.fill(_keys, 0);
+        Arrays.fill(_work, 0);
+    }
+
+    /** Perform solve(BOARD, DEADLINE). */
+    private Piece solve0(Board board, long deadline) {
+        _board = new Board(board);
+        _deadline = deadline;
+        _nodes = 0;
+        _aborted = false;
+        _bestMove = 0;
+        search(0, INFINITY, INFINITY);
+        long key = _board.hash();
+        Piece mover = _board.turn();
+        if (!lookup(key)) {
+            return null;
+        } else if (_foundProof == 0) {
+            _bestMove = winningMove();
+            return mover;
+        } else if (_foundDisproof == 0) {
+            return mover.opponent();
+        }
+        return null;
+    }
+
+    /** Expand the position on _board, at PLY moves from the root, until
+     *  its proof number reaches PROOFLIMIT or its disproof number reaches
+     *  DISPROOFLIMIT (or the search is aborted), and record its numbers
+     *  in my table.  Numbers are from the point of view of the side to
+     *  move: a position is proved when its proof number is 0, which is
+     *  when some move leads to a position with disproof number 0. */
+    private void search(int ply, int proofLimit, int disproofLimit) {
+        Board board = _board;
+        long key = board.hash();
+        long start = _nodes;
+        _nodes += 1;
+        if (_nodes > _nodeBudget
+            || _nodes % CLOCK_CHECK_INTERVAL == 0
+                && System.nanoTime() - _deadline > 0) {
+            _aborted = true;
+        }
+        if (_moves[ply] == null) {
+            _moves[ply] = new int[Board.MAX_MOVES];
+        }
+        int[] moves = _moves[ply];
+        int n = board.legalMoves(board.turn(), moves);
+        if (n == 0) {
+            store(key, INFINITY, 0, 1);
+            return;
+        }
+        initChildren(moves, n);
+
+        while (true) {
+            int proof = INFINITY, disproof = 0;
+            int best = 0, bestProof = 0, secondDisproof = INFINITY;
+            for (int i = 0; i < n; i += 1) {
+                childNumbers(moves[i]);
+                if (_foundDisproof < proof) {
+                    secondDisproof = proof;
+                    proof = _foundDisproof;
+                    best = i;
+                    bestProof = _foundProof;
+                } else if (_foundDisproof < secondDisproof) {
+                    secondDisproof = _foundDisproof;
+                }
+                disproof = (int) min(INFINITY, (long) disproof + _foundProof);
+            }
+            if (proof >= proofLimit || disproof >= disproofLimit
+                || _aborted) {
+                store(key, proof, disproof, _nodes - start);
+                return;
+            }
+            int childProofLimit = (int) min(INFINITY, (long) disproofLimit
+                                            - disproof + bestProof);
+            int childDisproofLimit =
+                (int) min(proofLimit, (long) secondDisproof + 1);
+            board.makeSearchMove(moves[best]);
+            search(ply + 1, childProofLimit, childDisproofLimit);
+            board.unmakeSearchMove();
+        }
+    }
+
+    /** Give table entries to those of the first N MOVES from _board that
+     *  have none, proving or disproving those whose outcome
+     *  Board.decidedWinner settles, and giving the rest proof and
+     *  disproof numbers of 1. */
+    private void initChildren(int[] moves, int n) {
+        Board board = _board;
+        for (int i = 0; i < n; i += 1) {
+            long key = board.hashAfter(moves[i]);
+            if (lookup(key)) {
+                continue;
+            }
+            board.makeSearchMove(moves[i]);
+            Piece winner = board.decidedWinner();
+            if (winner == null) {
+                store(key, 1, 1, 0);
+            } else if (winner == board.turn()) {
+                store(key, 0, INFINITY, 0);
+            } else {
+                store(key, INFINITY, 0, 0);
+            }
+            board.unmakeSearchMove();
+        }
+    }
+
+    /** Set _foundProof and _foundDisproof to the numbers recorded for the
+     *  position after MOVE from _board, or to 1 if there are none. */
+    private void childNumbers(int move) {
+        if (!lookup(_board.hashAfter(move))) {
+            _foundProof = _foundDisproof = 1;
+        }
+    }
+
+    /** Return a move from _board to a position whose side to move is
+     *  known to lose, or 0 if none is known. */
+    private int winningMove() {
+        int[] moves = _moves[0];
+        int n = _board.legalMoves(_board.turn(), moves);
+        for (int i = 0; i < n; i += 1) {
+            if (lookup(_board.hashAfter(moves[i])) && _foundDisproof == 0) {
+                return moves[i];
+            }
+        }
+        return 0;
+    }
+
+    /** If my table has an entry for KEY, set _foundProof and
+     *  _foundDisproof from it and return true.  Otherwise return
+     *  false. */
+    private boolean lookup(long key) {
+        int k = slot(key);
+        for (int i = 0; i < BUCKET; i += 1, k += 1) {
+            if (_keys[k] == key) {
+                _foundProof = _proof[k];
+                _foundDisproof = _disproof[k];
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Record PROOF and DISPROOF as the numbers for KEY, found with WORK
+     *  nodes of search.  Replaces the existing entry for KEY, if any,
+     *  and otherwise the entry in KEY's bucket that cost the least work,
+     *  so that the results of large searches (in particular, those for
+     *  positions on the current path) are not lost to the many entries
+     *  made for their descendants.  Settled results are kept in
+     *  preference to all others. */
+    private void store(long key, int proof, int disproof, long work) {
+        int k = slot(key), victim = k;
+        for (int i = 0; i < BUCKET; i += 1, k += 1) {
+            if (_keys[k] == key) {
+                victim = k;
+                break;
+            }
+            if (_work[k] < _work[victim]) {
+                victim = k;
+            }
+        }
+        _keys[victim] = key;
+        _proof[victim] = proof;
+        _disproof[victim] = disproof;
+        _work[victim] = proof == 0 || disproof == 0 ? Integer.MAX_VALUE
+            : (int) min(Integer.MAX_VALUE - 1, work);
+    }
+
+    /** Return the index of the first entry of the bucket for KEY. */
+    private int slot(long key) {
+        return (int) (key ^ (key >>> Integer.SIZE)) & _mask;
+    }
+
+    /** A proof or disproof number too large to matter: that of a node
+     *  whose outcome is settled against it. */
+    private static final int INFINITY = Integer.MAX_VALUE / 2;
+
+    /** The number of nodes between checks of the clock. */
+    private static final int CLOCK_CHECK_INTERVAL = 256;
+
+    /** Size of one table entry in bytes. */
+    private static final int ENTRY_BYTES = Long.BYTES + 3 * Integer.BYTES;
+
+    /** The number of entries examined for each key. */
+    private static final int BUCKET = 4;
+
+    /** Largest number of table entries. */
+    private static final long MAX_ENTRIES = 1 << 26;
+
+    /** Table keys, proof numbers, and disproof numbers. */
+    private final long[] _keys;
+    /** Proof numbers, indexed like _keys. */
+    private final int[] _proof;
+    /** Disproof numbers, indexed like _keys. */
+    private final int[] _disproof;
+    /** The number of nodes searched to find each entry, indexed like
+     *  _keys. */
+    private final int[] _work;
+    /** Mask that maps a hash to the first entry of a bucket. */
+    private final int _mask;
+
+    /** The limit on nodes per call of solve. */
+    private long _nodeBudget;
+    /** The board being solved, private to me. */
+    private Board _board;
+    /** The value of System.nanoTime() at which solving must stop. */
+    private long _deadline;
+    /** The number of nodes expanded by the current call of solve. */
+    private long _nodes;
+    /** True when the current call of solve has run out of budget. */
+    private boolean _aborted;
+    /** A winning move found by the last call of solve, or 0. */
+    private int _bestMove;
+    /** The numbers found by the last successful lookup. */
+    private int _foundProof, _foundDisproof;
+    /** Move buffers, indexed by ply. */
+    private final int[][] _moves = new int[Board.SIZE * Board.SIZE + 1][];
+
+}
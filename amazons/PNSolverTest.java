@@ -0,0 +1,62 @@
+package amazons;
+
+import org.junit.Test;
+
+import static amazons.Board.*;
+import static amazons.Piece.*;
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+/** Tests of the PNSolver class.
+ *  @author Yuan Xie.
+ */
+public class PNSolverTest {
+
+    @Test
+    public void testSolver() {
+        Board b = new Board();
+        Random random = new Random(63);
+        int[] moves = new int[MAX_MOVES];
+        PNSolver solver = new PNSolver(1);
+        for (int game = 0; game < 4; game += 1) {
+            b.init();
+            while (b.winner() == null
+                   && 100 - 8 - Bitboard.count(b.piecesLo(SPEAR),
+                                               b.piecesHi(SPEAR)) > 16) {
+                int n = b.legalMoves(b.turn(), moves);
+                b.makeSearchMove(moves[random.nextInt(n)]);
+            }
+            if (b.winner() != null) {
+                continue;
+            }
+            Piece winner = solver.solve(b);
+            assertEquals(negamax(new Board(b)), winner);
+            if (winner == b.turn()) {
+                b.makeSearchMove(solver.bestMove());
+                assertEquals(winner, negamax(b));
+            }
+        }
+    }
+
+    /** Return the winner of BOARD with best play, by exhaustive search. */
+    private Piece negamax(Board board) {
+        Piece decided = board.decidedWinner();
+        if (decided != null) {
+            return decided;
+        }
+        Piece mover = board.turn();
+        int[] moves = new int[MAX_MOVES];
+        int n = board.legalMoves(mover, moves);
+        for (int i = 0; i < n; i += 1) {
+            board.makeSearchMove(moves[i]);
+            Piece winner = negamax(board);
+            board.unmakeSearchMove();
+            if (winner == mover) {
+                return mover;
+            }
+        }
+        return mover.opponent();
+    }
+
+}
@@ -0,0 +1,197 @@
+package amazons;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.lang.Math.*;
+
+/** A counter of the leaves of the tree of legal moves to a given depth
+ *  ("perft").  The counts check move generation (any change to Board
+ *  must leave them unchanged) and the time taken measures its speed.
+ *  The root moves are shared out among several threads, and counts of
+ *  subtrees may be kept in a table, so that transpositions are counted
+ *  only once.  The last ply is counted with Board.numLegalMoves rather
+ *  than by making the moves.
+ *  @author Yuan Xie.
+ */
+class Perft {
+
+    /** A Perft that uses THREADS threads and, if HASHMB is positive, a
+     *  table of about HASHMB megabytes. */
+    Perft(int threads, int hashMB) {
+        _threads = max(1, threads);
+        if (hashMB > 0) {
+            int entries = (int) Long.highestOneBit(
+                max(1, min(MAX_ENTRIES,
+                           (long) hashMB * (1 << 20) / ENTRY_BYTES)));
+            _checks = new long[entries];
+            _counts = new long[entries];
+            _mask = entries - 1;
+        } else {
+            _checks = _counts = null;
+            _mask = 0;
+        }
+    }
+
+    /** Return the number of leaves of the tree of legal moves of depth
+     *  DEPTH from BOARD, which is unchanged.  Afterwards, rootMoves and
+     *  rootCounts give the count below each root move. */
+    long count(Board board, int depth) {
+        long start = System.nanoTime();
+        Board model = new Board(board);
+        _rootMoves = new int[Board.MAX_MOVES];
+        int n = model.legalMoves(model.turn(), _rootMoves);
+        _rootMoves = Arrays.copyOf(_rootMoves, depth == 0 ? 0 : n);
+        _rootCounts = new long[_rootMoves.length];
+        long total;
+        if (depth == 0) {
+            total = 1;
+        } else {
+            _nextRoot = new AtomicInteger();
+            List<Future<Void>> helpers = new ArrayList<>();
+            for (int k = 1; k < min(_threads, n); k += 1) {
+                helpers.add(pool().submit(() -> {
+                    countRootMoves(model, depth);
+                    return null;
+                }));
+            }
+            countRootMoves(model, depth);
+            for (Future<Void> helper : helpers) {
+                try {
+                    helper.get();
+                } catch (InterruptedException | ExecutionException excp) {
+                    throw new IllegalStateException(excp);
+                }
+            }
+            total = 0;
+            for (long c : _rootCounts) {
+                total += c;
+            }
+        }
+        _elapsed = System.nanoTime() - start;
+        return total;
+    }
+
+    /** Return the root moves (packed) of the last call of count. */
+    int[] rootMoves() {
+        return _rootMoves;
+    }
+
+    /** Return the number of leaves below each of rootMoves() in the last
+     *  call of count. */
+    long[] rootCounts() {
+        return _rootCounts;
+    }
+
+    /** Return the time taken by the last call of count, in
+     *  nanoseconds. */
+    long elapsed() {
+        return _elapsed;
+    }
+
+    /** Return the number of leaves counted per second in the last call
+     *  of count, whose result was COUNT. */
+    long nodesPerSecond(long count) {
+        return (long) (count * (double) Utils.NANOS_PER_SECOND
+                       / max(1, _elapsed));
+    }
+
+    /** Claim root moves from MODEL one at a time until none are left,
+     *  counting the leaves of depth DEPTH below each on a private copy
+     *  of MODEL. */
+    private void countRootMoves(Board model, int depth) {
+        Board board = new Board(model);
+        int[][] moves = new int[depth][];
+        while (true) {
+            int k = _nextRoot.getAndIncrement();
+            if (k >= _rootMoves.length) {
+                return;
+            }
+            board.makeSearchMove(_rootMoves[k]);
+            _rootCounts[k] = count(board, depth - 1, moves);
+            board.unmakeSearchMove();
+        }
+    }
+
+    /** Return the number of leaves of depth DEPTH below BOARD, using
+     *  MOVES[DEPTH] as the move buffer for that level. */
+    private long count(Board board, int depth, int[][] moves) {
+        if (depth == 0) {
+            return 1;
+        } else if (depth == 1) {
+            return board.numLegalMoves(board.turn());
+        }
+        long key = board.hash() ^ depth * DEPTH_KEY;
+        if (_checks != null) {
+            int k = (int) (key ^ (key >>> Integer.SIZE)) & _mask;
+            long c = _counts[k];
+            if ((_checks[k] ^ c) == key) {
+                return c;
+            }
+        }
+        if (moves[depth] == null) {
+            moves[depth] = new int[Board.MAX_MOVES];
+        }
+        int[] buffer = moves[depth];
+        int n = board.legalMoves(board.turn(), buffer);
+        long total = 0;
+        for (int i = 0; i < n; i += 1) {
+            board.makeSearchMove(buffer[i]);
+            total += count(board, depth - 1, moves);
+            board.unmakeSearchMove();
+        }
+        if (_checks != null) {
+            int k = (int) (key ^ (key >>> Integer.SIZE)) & _mask;
+            _checks[k] = key ^ total;
+            _counts[k] = total;
+        }
+        return total;
+    }
+
+    /** Return the thread pool used for my helper threads, creating it
+     *  if necessary. */
+    private synchronized ThreadPoolExecutor pool() {
+        if (_pool == null) {
+            _pool = Utils.fixedPool("amazons-perft", _threads - 1);
+        }
+        return _pool;
+    }
+
+    /** Mixed into a position's hash to distinguish the counts of
+     *  different depths. */
+    private static final long DEPTH_KEY = 0x9e3779b97f4a7c15L;
+
+    /** Size of one table entry in bytes. */
+    private static final int ENTRY_BYTES = 2 * Long.BYTES;
+
+    /** Largest number of table entries. */
+    private static final long MAX_ENTRIES = 1 << 26;
+
+    /** The number of threads I use. */
+    private final int _threads;
+
+    /** The table of counts, or null if none: entry k holds a count of
+     *  _counts[k] leaves for the key _checks[k] ^ _counts[k].  Storing
+     *  the key this way lets threads share the table without locks,
+     *  since an entry torn by a racing write fails the check. */
+    private final long[] _checks, _counts;
+    /** Mask that maps a key to a table index. */
+    private final int _mask;
+
+    /** The root moves of the current count. */
+    private int[] _rootMoves;
+    /** The counts below each of _rootMoves. */
+    private long[] _rootCounts;
+    /** The index of the next root move to be claimed by a thread. */
+    private AtomicInteger _nextRoot;
+    /** Nanoseconds taken by the last count. */
+    private long _elapsed;
+    /** Pool for my helper threads, or null if not yet needed. */
+    private ThreadPoolExecutor _pool;
+
+}
@@ -0,0 +1,34 @@
+package amazons;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/** Tests of the Perft class.
+ *  @author Yuan Xie.
+ */
+public class PerftTest {
+
+    @Test
+    public void testPerft() {
+        Board b = new Board();
+        assertEquals(1, new Perft(1, 0).count(b, 0));
+        assertEquals(2176, new Perft(1, 0).count(b, 1));
+        assertEquals(4307152, new Perft(1, 0).count(b, 2));
+        Perft perft = new Perft(3, 1);
+        assertEquals(4307152, perft.count(b, 2));
+        long total = 0;
+        for (long count : perft.rootCounts()) {
+            total += count;
+        }
+        assertEquals(4307152, total);
+        assertEquals(2176, perft.rootMoves().length);
+        b.makeMove(Move.mv("d1-d7(g7)"));
+        long after = new Perft(1, 0).count(b, 2);
+        assertEquals(after, perft.count(b, 2));
+        assertEquals(UnitTest.INIT_BOARD_STATE.length(),
+                     b.toString().length());
+        assertEquals(1, b.numMoves());
+    }
+
+}
@@ -1,5 +1,11 @@
 package amazons;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+
 import static amazons.Utils.*;
 
 /** A generic Amazons Player.
@@ -36,8 +42,132 @@ abstract class Player {
      *  is not null. */
     abstract String myMove();
 
+    /** Return true iff my commands come from a person, who cannot be
+     *  hurried by cancelMove, so that my controller should not impose a
+     *  deadline on me.  False by default. */
+    boolean interactive() {
+        return false;
+    }
+
+    /** Start choosing my next command (as myMove does) on EXECUTOR, and
+     *  return a future for it, so that my controller can wait for it
+     *  with a deadline.  By default simply runs myMove, so that every
+     *  Player can be driven this way.  Players that can cut their choice
+     *  short also override cancelMove, and should choose from a copy of
+     *  board() taken before returning, since my controller may go on
+     *  to change the board if it abandons the choice. */
+    CompletableFuture<String> requestMove(Executor executor) {
+        return CompletableFuture.supplyAsync(this::myMove, executor);
+    }
+
+    /** Ask the choice started by requestMove, if it is still in
+     *  progress, to finish as soon as possible with the best move found
+     *  so far.  Does nothing by default. */
+    void cancelMove() {
+    }
+
+    /** Give up for good on the choice started by requestMove: cancel
+     *  it, and suppress anything it would report afterwards (see
+     *  report).  My controller calls this when it stops waiting for the
+     *  choice, after which it no longer uses me. */
+    synchronized void abandonMove() {
+        _abandoned = true;
+        cancelMove();
+    }
+
+    /** Run REPORT, which passes the outcome of my choice of move to my
+     *  controller, and return true, unless the choice has been
+     *  abandoned, in which case return false.  Either way, once
+     *  abandonMove has returned, no REPORT runs. */
+    protected synchronized boolean report(Runnable report) {
+        if (_abandoned) {
+            return false;
+        }
+        report.run();
+        return true;
+    }
+
+    /** Called by my controller after MOVE has been made on the board,
+     *  whichever side made it.  Does nothing by default. */
+    void moveMade(Move move) {
+    }
+
+    /** Return the number of nanoseconds to spend choosing a move from
+     *  BOARD, given the time limits set by my controller and the time I
+     *  have already used in this game.  Returns UNLIMITED if there are
+     *  no limits. */
+    long timeBudget(Board board) {
+        long moveLimit = _controller.moveTimeLimit(),
+            gameLimit = _controller.gameTimeLimit();
+        long millis =
+            moveLimit > 0 ? moveLimit : Long.MAX_VALUE / NANOS_PER_MILLI;
+        if (gameLimit > 0) {
+            long left = gameLimit - _controller.timeUsed(_myPiece);
+            int movesToGo = Math.max(MIN_MOVES_TO_GO,
+                                     board.numEmpty() / EMPTY_PER_MOVE_TO_GO);
+            millis = Math.min(millis, left / movesToGo);
+        }
+        millis = Math.max(MIN_MOVE_TIME, millis - SAFETY_MARGIN);
+        return Math.min(millis * NANOS_PER_MILLI, UNLIMITED);
+    }
+
+    /** Run my searches on POOL, which may be shared by many players, or
+     *  on the thread that calls myMove if POOL is null (the default).
+     *  Players created from me as a template use the same pool, and
+     *  search on one thread of it even if set to use more (helper
+     *  threads of their own would escape the pool), so its size bounds
+     *  the number of their search threads running at once. */
+    void setSearchPool(ExecutorService pool) {
+        _searchPool = pool;
+    }
+
+    /** Return the result of SEARCH, run on my search pool (waiting for
+     *  a worker to be free) if I have one, and otherwise on the current
+     *  thread. */
+    protected <T> T runSearch(Supplier<T> search) {
+        if (_searchPool == null) {
+            return search.get();
+        }
+        try {
+            return _searchPool.submit(search::get).get();
+        } catch (InterruptedException excp) {
+            throw new IllegalStateException(excp);
+        } catch (ExecutionException excp) {
+            if (excp.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) excp.getCause();
+            }
+            throw new IllegalStateException(excp.getCause());
+        }
+    }
+
+    /** A time budget in nanoseconds that is never used up (but that
+     *  can be added to the current time without overflow).  Deadlines
+     *  formed this way must be compared by subtraction, as in
+     *  System.nanoTime() - deadline > 0, since the sum may wrap. */
+    static final long UNLIMITED = Long.MAX_VALUE / 2;
+
+    /** The least time in milliseconds allotted to a move. */
+    private static final long MIN_MOVE_TIME = 10;
+
+    /** Milliseconds held back from each move's allotment to cover the
+     *  cost of reporting the move. */
+    private static final long SAFETY_MARGIN = 50;
+
+    /** The fewest moves that time management assumes remain for me. */
+    private static final int MIN_MOVES_TO_GO = 5;
+
+    /** Time management assumes that I have one move left for each this
+     *  many empty squares: each move fills a square, half the moves are
+     *  mine, and games end well before the board is full. */
+    private static final int EMPTY_PER_MOVE_TO_GO = 3;
+
     /** My Controller. */
     protected Controller _controller;
     /** The Piece I play (WHITE or BLACK). */
     protected final Piece _myPiece;
+    /** The pool running my searches, or null to run them on the thread
+     *  calling myMove. */
+    protected ExecutorService _searchPool;
+    /** True iff my controller has abandoned my choice of move. */
+    private boolean _abandoned;
 }
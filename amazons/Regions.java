@@ -0,0 +1,370 @@
+package amazons;
+
+import static amazons.Piece.*;
+
+/** An analysis of an Amazons position into regions: the sets of
+ *  non-spear squares that are connected by king steps.  No amazon can
+ *  ever leave its region, nor throw a spear outside it, so once no
+ *  region holds amazons of both colors (the board is "partitioned"),
+ *  the players can no longer interfere with each other, and the game
+ *  goes to the side that can make more moves in its own regions.
+ *
+ *  For each region owned by one side, the analysis bounds the number
+ *  of moves that side can make there.  Each move fills one empty
+ *  square, so the region's number of empty squares is an upper bound.
+ *  A lower bound comes from actually filling the region with "shuffle"
+ *  moves (step to an adjacent square and throw the spear back), always
+ *  stepping to the square with the fewest empty neighbors.  Small
+ *  regions whose bounds differ are solved exactly by exhaustive search
+ *  within a node budget.  The first move of the best filling found is
+ *  remembered, so that a player can finish the game quickly.
+ *  @author Yuan Xie.
+ */
+class Regions {
+
+    /** Analyze BOARD, replacing any previous analysis.  Bounds on move
+     *  counts are computed only when first needed. */
+    void analyze(Board board) {
+        _board = board;
+        _hash = board.hash();
+        _count = 0;
+        _contested = 0;
+        _boundsKnown = _refined = false;
+        long passLo = ~board.piecesLo(SPEAR) & Bitboard.ALL_LO,
+            passHi = ~board.piecesHi(SPEAR) & Bitboard.ALL_HI;
+        long whiteLo = board.piecesLo(WHITE), whiteHi = board.piecesHi(WHITE),
+            blackLo = board.piecesLo(BLACK), blackHi = board.piecesHi(BLACK);
+        long leftLo = passLo, leftHi = passHi;
+        while ((leftLo | leftHi) != 0) {
+            int seed = Bitboard.nearest(leftLo, leftHi, 0);
+            flood(Bitboard.bitLo(seed), Bitboard.bitHi(seed),
+                  passLo, passHi);
+            long lo = _flood[0], hi = _flood[1];
+            leftLo &= ~lo;
+            leftHi &= ~hi;
+            int r = _count;
+            _count += 1;
+            _lo[r] = lo;
+            _hi[r] = hi;
+            _white[r] = Bitboard.count(lo & whiteLo, hi & whiteHi);
+            _black[r] = Bitboard.count(lo & blackLo, hi & blackHi);
+            _empty[r] = Bitboard.count(lo, hi) - _white[r] - _black[r];
+            if (_white[r] > 0 && _black[r] > 0) {
+                _contested += 1;
+            }
+        }
+    }
+
+    /** Return true iff my analysis is of BOARD in its current
+     *  position. */
+    boolean isAnalysisOf(Board board) {
+        return _board == board && _hash == board.hash();
+    }
+
+    /** Return the number of regions. */
+    int count() {
+        return _count;
+    }
+
+    /** Return the low word of the bitboard of region R. */
+    long regionLo(int r) {
+        return _lo[r];
+    }
+
+    /** Return the high word of the bitboard of region R. */
+    long regionHi(int r) {
+        return _hi[r];
+    }
+
+    /** Return the number of empty squares in region R. */
+    int size(int r) {
+        return _empty[r];
+    }
+
+    /** Return the owner of region R: WHITE or BLACK if it holds only
+     *  amazons of that color, EMPTY if it holds none, and null if it
+     *  holds both (it is contested). */
+    Piece owner(int r) {
+        if (_white[r] > 0) {
+            return _black[r] > 0 ? null : WHITE;
+        }
+        return _black[r] > 0 ? BLACK : EMPTY;
+    }
+
+    /** Return true iff no region is contested. */
+    boolean partitioned() {
+        return _contested == 0;
+    }
+
+    /** Return a lower bound on the number of moves SIDE can make in the
+     *  regions it owns. */
+    int minMoves(Piece side) {
+        computeBounds();
+        int total = 0;
+        for (int r = 0; r < _count; r += 1) {
+            if (owner(r) == side) {
+                total += _low[r];
+            }
+        }
+        return total;
+    }
+
+    /** Return an upper bound on the number of moves SIDE can make in the
+     *  regions it owns. */
+    int maxMoves(Piece side) {
+        computeBounds();
+        int total = 0;
+        for (int r = 0; r < _count; r += 1) {
+            if (owner(r) == side) {
+                total += _high[r];
+            }
+        }
+        return total;
+    }
+
+    /** Return the side certain to win from the analyzed position with
+     *  best play, if the board is partitioned and the move bounds settle
+     *  the outcome, and otherwise null.  The side to move wins iff it can
+     *  make more moves than its opponent. */
+    Piece decidedWinner() {
+        if (!partitioned()) {
+            return null;
+        }
+        Piece winner = boundsWinner();
+        if (winner == null && !_refined) {
+            refineBounds();
+            winner = boundsWinner();
+        }
+        return winner;
+    }
+
+    /** Return the side that the current move bounds show must win, or
+     *  null if they do not settle it, assuming the board is
+     *  partitioned. */
+    private Piece boundsWinner() {
+        Piece mover = _board.turn(), other = mover.opponent();
+        if (minMoves(mover) > maxMoves(other)) {
+            return mover;
+        } else if (maxMoves(mover) <= minMoves(other)) {
+            return other;
+        }
+        return null;
+    }
+
+    /** Return a move (packed) for SIDE that begins the best filling of
+     *  one of its regions found by the analysis, or 0 if SIDE owns no
+     *  region in which it can move. */
+    int fillingMove(Piece side) {
+        refineBounds();
+        for (int r = 0; r < _count; r += 1) {
+            if (owner(r) == side && _first[r] != 0) {
+                return _first[r];
+            }
+        }
+        return 0;
+    }
+
+    /** Set _flood to the region (connected by king steps within PASSLO,
+     *  PASSHI) containing the set SEEDLO, SEEDHI.  Each round grows the
+     *  set by one king step, as a step east or west followed by one north
+     *  or south. */
+    private void flood(long seedLo, long seedHi, long passLo, long passHi) {
+        long lo = seedLo, hi = seedHi;
+        while (true) {
+            long rowLo = lo | Bitboard.shiftLo(lo, hi, EAST)
+                | Bitboard.shiftLo(lo, hi, WEST);
+            long rowHi = hi | Bitboard.shiftHi(lo, hi, EAST)
+                | Bitboard.shiftHi(lo, hi, WEST);
+            long nextLo = (rowLo | Bitboard.shiftLo(rowLo, rowHi, NORTH)
+                           | Bitboard.shiftLo(rowLo, rowHi, SOUTH)) & passLo;
+            long nextHi = (rowHi | Bitboard.shiftHi(rowLo, rowHi, NORTH)
+                           | Bitboard.shiftHi(rowLo, rowHi, SOUTH)) & passHi;
+            if (nextLo == lo && nextHi == hi) {
+                break;
+            }
+            lo = nextLo;
+            hi = nextHi;
+        }
+        _flood[0] = lo;
+        _flood[1] = hi;
+    }
+
+    /** Compute _low, _high and _first for every owned region from
+     *  shuffle fillings, if not yet done for this analysis. */
+    private void computeBounds() {
+        if (_boundsKnown) {
+            return;
+        }
+        _boundsKnown = true;
+        if (_scratch == null) {
+            _scratch = new Board();
+        }
+        _scratch.copy(_board);
+        for (int r = 0; r < _count; r += 1) {
+            Piece side = owner(r);
+            _low[r] = _high[r] = _first[r] = 0;
+            if (side == WHITE || side == BLACK) {
+                _high[r] = _empty[r];
+                shuffleFill(r, side);
+            }
+        }
+    }
+
+    /** Tighten the bounds of small owned regions by exhaustive search,
+     *  if not yet done for this analysis.  This is much more expensive
+     *  than computeBounds, and so is done only when needed. */
+    private void refineBounds() {
+        computeBounds();
+        if (_refined) {
+            return;
+        }
+        _refined = true;
+        for (int r = 0; r < _count; r += 1) {
+            if (_low[r] < _high[r] && _empty[r] <= EXACT_LIMIT) {
+                _nodes = 0;
+                int best = longestFill(r, owner(r), 0);
+                if (_nodes <= NODE_BUDGET) {
+                    _high[r] = best;
+                }
+            }
+        }
+    }
+
+    /** Fill region R with shuffle moves by SIDE on _scratch, setting
+     *  _low[R] to the number of moves made and _first[R] to the first.
+     *  Leaves _scratch unchanged. */
+    private void shuffleFill(int r, Piece side) {
+        int made = 0;
+        while (true) {
+            int move = shuffleMove(r, side);
+            if (move == 0) {
+                break;
+            }
+            if (made == 0) {
+                _first[r] = move;
+            }
+            _scratch.makeSearchMove(move);
+            made += 1;
+        }
+        for (int i = 0; i < made; i += 1) {
+            _scratch.unmakeSearchMove();
+        }
+        _low[r] = made;
+    }
+
+    /** Return the shuffle move by SIDE in region R on _scratch to the
+     *  square with the fewest empty neighbors, or 0 if SIDE cannot move
+     *  there. */
+    private int shuffleMove(int r, Piece side) {
+        Board board = _scratch;
+        long lo = board.piecesLo(side) & _lo[r],
+            hi = board.piecesHi(side) & _hi[r];
+        int best = 0, bestDegree = Integer.MAX_VALUE;
+        while ((lo | hi) != 0) {
+            int from = Bitboard.nearest(lo, hi, 0);
+            lo &= ~Bitboard.bitLo(from);
+            hi &= ~Bitboard.bitHi(from);
+            Square fromSq = Square.sq(from);
+            for (int dir = 0; dir < 8; dir += 1) {
+                Square to = fromSq.queenMove(dir, 1);
+                if (to == null || board.get(to) != EMPTY) {
+                    continue;
+                }
+                int degree = emptyNeighbors(board, to);
+                if (degree < bestDegree) {
+                    bestDegree = degree;
+                    best = Move.pack(from, to.index(), from);
+                }
+            }
+        }
+        return best;
+    }
+
+    /** Return the number of empty squares adjacent to S on BOARD. */
+    private static int emptyNeighbors(Board board, Square s) {
+        int result = 0;
+        for (int dir = 0; dir < 8; dir += 1) {
+            Square next = s.queenMove(dir, 1);
+            if (next != null && board.get(next) == EMPTY) {
+                result += 1;
+            }
+        }
+        return result;
+    }
+
+    /** Return the greatest number of moves SIDE can make in region R on
+     *  _scratch, searching exhaustively with PLY moves already made,
+     *  and stop early once a filling of every empty square is found or
+     *  the node budget is spent.  Updates _low[R] and _first[R] whenever
+     *  a longer filling is found. */
+    private int longestFill(int r, Piece side, int ply) {
+        _nodes += 1;
+        if (_moves[ply] == null) {
+            _moves[ply] = new int[Board.MAX_MOVES];
+        }
+        int[] moves = _moves[ply];
+        int n = _scratch.legalMoves(side, moves);
+        int best = 0;
+        for (int i = 0; i < n && _nodes <= NODE_BUDGET; i += 1) {
+            int move = moves[i];
+            if (!Bitboard.contains(_lo[r], _hi[r], Move.fromIndex(move))) {
+                continue;
+            }
+            _scratch.makeSearchMove(move);
+            int value = 1 + longestFill(r, side, ply + 1);
+            _scratch.unmakeSearchMove();
+            if (value > best) {
+                best = value;
+                if (ply == 0 && value > _low[r]) {
+                    _low[r] = value;
+                    _first[r] = move;
+                }
+            }
+            if (ply + best >= _high[r]) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    /** Directions (see Square.queenMove) used by flood. */
+    private static final int NORTH = 0, EAST = 2, SOUTH = 4, WEST = 6;
+
+    /** The largest region that is solved exactly. */
+    private static final int EXACT_LIMIT = 8;
+    /** The most nodes examined when solving one region exactly. */
+    private static final int NODE_BUDGET = 5000;
+    /** The most regions a board can have. */
+    private static final int MAX_REGIONS = Board.SIZE * Board.SIZE;
+
+    /** The board analyzed, and its hash at the time. */
+    private Board _board;
+    /** The hash of _board when analyzed. */
+    private long _hash;
+    /** The number of regions, and the number of those contested. */
+    private int _count, _contested;
+    /** The bitboards of the regions (low and high words). */
+    private final long[] _lo = new long[MAX_REGIONS],
+        _hi = new long[MAX_REGIONS];
+    /** The numbers of White amazons, Black amazons, and empty squares in
+     *  each region. */
+    private final int[] _white = new int[MAX_REGIONS],
+        _black = new int[MAX_REGIONS], _empty = new int[MAX_REGIONS];
+    /** Lower and upper bounds on the moves the owner of each region can
+     *  make in it, and the first move of the best filling found (0 for
+     *  unowned regions or none). */
+    private final int[] _low = new int[MAX_REGIONS],
+        _high = new int[MAX_REGIONS], _first = new int[MAX_REGIONS];
+    /** True iff _low, _high and _first are up to date, and iff they
+     *  include the results of exhaustive search. */
+    private boolean _boundsKnown, _refined;
+    /** Scratch result of flood. */
+    private final long[] _flood = new long[2];
+    /** A copy of _board on which fillings are tried, or null. */
+    private Board _scratch;
+    /** Move buffers for longestFill, by ply. */
+    private final int[][] _moves = new int[EXACT_LIMIT + 1][];
+    /** Nodes examined by the current longestFill search. */
+    private int _nodes;
+
+}
@@ -0,0 +1,31 @@
+package amazons;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** A Flight Recorder event for the AI's check, before each move, of
+ *  whether the board has broken into separate regions (see Regions).
+ *  @author Yuan Xie.
+ */
+@Name("amazons.Regions")
+@Label("Region Detection")
+@Category("Amazons")
+@Description("Detection of separate regions before a move by the AI")
+class RegionsEvent extends Event {
+
+    /** The number of empty squares on the board. */
+    @Label("Empty Squares")
+    int empty;
+
+    /** The number of regions found. */
+    @Label("Regions")
+    int regions;
+
+    /** True iff the board is partitioned. */
+    @Label("Partitioned")
+    boolean partitioned;
+
+}
@@ -16,5 +16,15 @@ interface Reporter {
     /** Display MOVE as needed. */
     void reportMove(Move move);
 
+    /** Display STATS, the statistics of a search by the automated
+     *  player for SIDE, as needed. */
+    void reportSearchInfo(Piece side, SearchStats stats);
+
+    /** Display STATS, the statistics so far of a search by the automated
+     *  player for SIDE, which has just completed an iteration, as
+     *  needed.  By default, does nothing. */
+    default void reportIteration(Piece side, SearchStats stats) {
+    }
+
 }
 
@@ -0,0 +1,42 @@
+package amazons;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** A Flight Recorder event for one iteration of the AI's iterative
+ *  deepening search, lasting from its start to its end.  Like all JFR
+ *  events, it costs next to nothing unless a recording enables it.
+ *  @author Yuan Xie.
+ */
+@Name("amazons.SearchIteration")
+@Label("Search Iteration")
+@Category("Amazons")
+@Description("One iteration of iterative deepening by the AI")
+class SearchIterationEvent extends Event {
+
+    /** The side searching. */
+    @Label("Side")
+    String side;
+
+    /** The depth of the iteration. */
+    @Label("Depth")
+    int depth;
+
+    /** The value of the best root move found (positive favors
+     *  White). */
+    @Label("Score")
+    int score;
+
+    /** The number of nodes searched in the iteration, by all
+     *  threads. */
+    @Label("Nodes")
+    long nodes;
+
+    /** True iff the iteration ran out of time before completing. */
+    @Label("Stopped")
+    boolean stopped;
+
+}
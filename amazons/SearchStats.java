@@ -0,0 +1,257 @@
+package amazons;
+
+import java.util.Arrays;
+
+import static amazons.Utils.*;
+
+/** Counts describing one search: nodes visited (in total and by ply),
+ *  beta cutoffs (including how many of them were caused by the first
+ *  move tried), transposition-table probes, hits and stores, and calls
+ *  of the static evaluator.  Each search thread counts into its own
+ *  SearchStats, with no synchronization, and the results are merged
+ *  with add when the search ends.  The merged SearchStats also records
+ *  the depth completed and the time taken, in total and by iteration.
+ *  @author Yuan Xie.
+ */
+class SearchStats {
+
+    /** Statistics for searches of at most MAXPLY plies. */
+    SearchStats(int maxPly) {
+        _nodesByPly = new long[maxPly + 1];
+        _iterationNanos = new long[maxPly + 1];
+    }
+
+    /** Reset all counts and times to 0. */
+    void clear() {
+        _nodes = _cutoffs = _firstMoveCutoffs = 0;
+        _ttProbes = _ttHits = _ttStores = _evaluations = 0;
+        _depth = 0;
+        _score = 0;
+        _elapsed = 0;
+        Arrays.fill(_nodesByPly, 0);
+        Arrays.fill(_iterationNanos, 0);
+    }
+
+    /** Add the counts in OTHER to mine. */
+    void add(SearchStats other) {
+        _nodes += other._nodes;
+        _cutoffs += other._cutoffs;
+        _firstMoveCutoffs += other._firstMoveCutoffs;
+        _ttProbes += other._ttProbes;
+        _ttHits += other._ttHits;
+        _ttStores += other._ttStores;
+        _evaluations += other._evaluations;
+        for (int p = 0; p < _nodesByPly.length; p += 1) {
+            _nodesByPly[p] += other._nodesByPly[p];
+        }
+    }
+
+    /** Count a node at ply PLY. */
+    void node(int ply) {
+        _nodes += 1;
+        _nodesByPly[ply] += 1;
+    }
+
+    /** Count a cutoff, caused by the first move tried iff FIRST. */
+    void cutoff(boolean first) {
+        _cutoffs += 1;
+        if (first) {
+            _firstMoveCutoffs += 1;
+        }
+    }
+
+    /** Count a transposition-table probe, which found an entry iff
+     *  HIT. */
+    void probe(boolean hit) {
+        _ttProbes += 1;
+        if (hit) {
+            _ttHits += 1;
+        }
+    }
+
+    /** Count a transposition-table store. */
+    void store() {
+        _ttStores += 1;
+    }
+
+    /** Count a call of the static evaluator. */
+    void evaluation() {
+        _evaluations += 1;
+    }
+
+    /** Record that iteration DEPTH of the search took NANOS
+     *  nanoseconds. */
+    void iteration(int depth, long nanos) {
+        _iterationNanos[depth] = nanos;
+    }
+
+    /** Record that the deepest iteration completed so far found the
+     *  value SCORE (positive if good for White). */
+    void setScore(int score) {
+        _score = score;
+    }
+
+    /** Record that the search completed DEPTH levels in ELAPSED
+     *  nanoseconds. */
+    void finish(int depth, long elapsed) {
+        _depth = depth;
+        _elapsed = elapsed;
+    }
+
+    /** Return the total number of nodes. */
+    long nodes() {
+        return _nodes;
+    }
+
+    /** Return the number of nodes at ply PLY. */
+    long nodes(int ply) {
+        return _nodesByPly[ply];
+    }
+
+    /** Return the number of cutoffs. */
+    long cutoffs() {
+        return _cutoffs;
+    }
+
+    /** Return the number of cutoffs caused by the first move tried. */
+    long firstMoveCutoffs() {
+        return _firstMoveCutoffs;
+    }
+
+    /** Return the fraction of cutoffs caused by the first move tried
+     *  (0 if there were none). */
+    double firstMoveCutoffRate() {
+        return (double) _firstMoveCutoffs / Math.max(1, _cutoffs);
+    }
+
+    /** Return the number of transposition-table probes. */
+    long ttProbes() {
+        return _ttProbes;
+    }
+
+    /** Return the number of transposition-table probes that found an
+     *  entry. */
+    long ttHits() {
+        return _ttHits;
+    }
+
+    /** Return the number of transposition-table stores. */
+    long ttStores() {
+        return _ttStores;
+    }
+
+    /** Return the fraction of probes that found an entry (0 if there
+     *  were none). */
+    double ttHitRate() {
+        return (double) _ttHits / Math.max(1, _ttProbes);
+    }
+
+    /** Return the number of calls of the static evaluator. */
+    long evaluations() {
+        return _evaluations;
+    }
+
+    /** Return the number of levels the search completed. */
+    int depth() {
+        return _depth;
+    }
+
+    /** Return the value found by the deepest completed iteration
+     *  (positive if good for White). */
+    int score() {
+        return _score;
+    }
+
+    /** Return the greatest ply at which a node was searched. */
+    int selDepth() {
+        int last = _nodesByPly.length - 1;
+        while (last > 0 && _nodesByPly[last] == 0) {
+            last -= 1;
+        }
+        return last;
+    }
+
+    /** Return the time the search took, in nanoseconds. */
+    long elapsed() {
+        return _elapsed;
+    }
+
+    /** Return the nodes searched per second. */
+    long nodesPerSecond() {
+        return (long) (_nodes * (double) NANOS_PER_SECOND
+                       / Math.max(1, _elapsed));
+    }
+
+    /** Return the time taken by iteration DEPTH of the search, in
+     *  nanoseconds, or 0 if it did not complete. */
+    long iterationNanos(int depth) {
+        return _iterationNanos[depth];
+    }
+
+    /** Return my counts as one line of comma-separated values, in the
+     *  order given by CSV_HEADER, labeled with SIDE.  The times of the
+     *  iterations, in microseconds, form one field, separated by
+     *  spaces. */
+    String toCsv(Piece side) {
+        StringBuilder iterations = new StringBuilder();
+        for (int d = 1; d <= _depth; d += 1) {
+            iterations.append(d > 1 ? " " : "")
+                .append(_iterationNanos[d] / NANOS_PER_MICRO);
+        }
+        return String.format("%s,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d,%s",
+                             side, _depth, selDepth(), _nodes,
+                             _elapsed / NANOS_PER_MICRO, nodesPerSecond(),
+                             _cutoffs, _firstMoveCutoffs, _ttProbes,
+                             _ttHits, _ttStores, _evaluations, iterations);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        result.append(String.format("depth %d/%d, %d nodes in %d ms"
+                                    + " (%d/s), cutoffs %d"
+                                    + " (%.1f%% first move)",
+                                    _depth, selDepth(), _nodes,
+                                    _elapsed / NANOS_PER_MILLI,
+                                    nodesPerSecond(), _cutoffs,
+                                    100 * firstMoveCutoffRate()));
+        result.append(String.format(", hash %d probes (%.1f%% hits)"
+                                    + " %d stores, %d evaluations",
+                                    _ttProbes, 100 * ttHitRate(),
+                                    _ttStores, _evaluations));
+        result.append(", nodes by ply");
+        for (int p = 0; p <= selDepth(); p += 1) {
+            result.append(' ').append(_nodesByPly[p]);
+        }
+        result.append(", ms by iteration");
+        for (int d = 1; d <= _depth; d += 1) {
+            result.append(' ').append(_iterationNanos[d] / NANOS_PER_MILLI);
+        }
+        return result.toString();
+    }
+
+    /** Column names for toCsv. */
+    static final String CSV_HEADER =
+        "side,depth,seldepth,nodes,micros,nps,cutoffs,firstmovecutoffs,"
+        + "ttprobes,tthits,ttstores,evaluations,iterationmicros";
+
+    /** Total nodes. */
+    private long _nodes;
+    /** Nodes by ply. */
+    private final long[] _nodesByPly;
+    /** Cutoffs in total and on the first move. */
+    private long _cutoffs, _firstMoveCutoffs;
+    /** Transposition-table probes, hits, and stores. */
+    private long _ttProbes, _ttHits, _ttStores;
+    /** Calls of the static evaluator. */
+    private long _evaluations;
+    /** Levels completed. */
+    private int _depth;
+    /** Value found by the deepest completed iteration. */
+    private int _score;
+    /** Nanoseconds taken in total. */
+    private long _elapsed;
+    /** Nanoseconds taken by each iteration, indexed by depth. */
+    private final long[] _iterationNanos;
+
+}
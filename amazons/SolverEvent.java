@@ -0,0 +1,31 @@
+package amazons;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** A Flight Recorder event for one call of PNSolver.solve.
+ *  @author Yuan Xie.
+ */
+@Name("amazons.Solver")
+@Label("Endgame Solver")
+@Category("Amazons")
+@Description("One attempt by the proof-number solver to solve a position")
+class SolverEvent extends Event {
+
+    /** The number of empty squares in the position. */
+    @Label("Empty Squares")
+    int empty;
+
+    /** The winner with best play ("W" or "B"), or null if the position
+     *  was not solved. */
+    @Label("Winner")
+    String winner;
+
+    /** The number of nodes expanded. */
+    @Label("Nodes")
+    long nodes;
+
+}
@@ -1,5 +1,6 @@
 package amazons;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
@@ -43,22 +44,7 @@ final class Square {
 
     /** Return true iff THIS - TO is a valid queen move. */
     boolean isQueenMove(Square to) {
-        if (this == to || to == null || to.index() < 0
-                || to.index() > (100 - 1)) {
-            return false;
-        }
-        int colDiff = to._col - _col;
-        int rowDiff = to._row - _row;
-        int[] direction = {colDiff, rowDiff};
-        for (int i = 0; i < DIR.length; i += 1) {
-            for (int j = 0; j < 10; j += 1) {
-                int[] a = {DIR[i][0] * j, DIR[i][1] * j};
-                if (Arrays.equals(a, direction)) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        return to != null && DIRECTION[_index][to._index] >= 0;
     }
 
     /** Definitions of direction for queenMove.  DIR[k] = (dcol, drow)
@@ -75,37 +61,48 @@ final class Square {
      *  If DIR has another value, return null. Thus, unless the result
      *  is null the resulting square is a queen move away rom me. */
     Square queenMove(int dir, int steps) {
-        int col = _col + steps * DIR[dir][0];
-        int row = _row + steps * DIR[dir][1];
-        if (col > 9 || row > 9 || col < 0 || row < 0) {
+        if (dir < 0 || dir >= DIR.length) {
             return null;
         }
-        int index = row * 10 + col;
-        if (index > (100 - 1) || index < 0) {
+        Square[] ray = RAYS[_index][dir];
+        if (steps < 1 || steps > ray.length) {
             return null;
-        } else {
-            return SQUARES[index];
         }
+        return ray[steps - 1];
+    }
+
+    /** Return the squares reached by moving 1, 2, ... steps from me in
+     *  direction DIR, in order, up to the edge of the board.  The
+     *  result is shared and must not be modified. */
+    Square[] ray(int dir) {
+        return RAYS[_index][dir];
     }
 
     /** Return the direction (an int as defined in the documentation
      *  for queenMove) of the queen move THIS-TO. */
     int direction(Square to) {
         assert isQueenMove(to);
-        int colDiff = to._col - _col;
-        int rowDiff = to._row - _row;
-        int[] direction = {colDiff, rowDiff};
-        int result = 0;
-        for (int i = 0; i < DIR.length; i += 1) {
-            for (int j = 0; j < 10; j += 1) {
-                int[] a = {DIR[i][0] * j, DIR[i][1] * j};
-                if (Arrays.equals(a, direction)) {
-                    result = i;
-                    break;
-                }
-            }
-        }
-        return result;
+        return DIRECTION[_index][to._index];
+    }
+
+    /** Return the number of king steps between me and TO (the larger of
+     *  the row and column differences).  For a queen move, this is the
+     *  length of the move. */
+    int distance(Square to) {
+        return DISTANCE[_index][to._index];
+    }
+
+    /** Return the low word of the bitboard (see Bitboard) of the squares
+     *  strictly between me and TO, or 0 if THIS-TO is not a queen
+     *  move. */
+    long betweenLo(Square to) {
+        return BETWEEN_LO[_index * SQUARE_COUNT + to._index];
+    }
+
+    /** Return the high word of the bitboard of the squares strictly
+     *  between me and TO, or 0 if THIS-TO is not a queen move. */
+    long betweenHi(Square to) {
+        return BETWEEN_HI[_index * SQUARE_COUNT + to._index];
     }
 
     @Override
@@ -164,17 +161,67 @@ final class Square {
                 + Integer.toString(_row + 1));
     }
 
+    /** The number of squares on the board. */
+    private static final int SQUARE_COUNT = Board.SIZE * Board.SIZE;
+
     /** The cache of all created squares, by index. */
-    private static final Square[] SQUARES =
-        new Square[Board.SIZE * Board.SIZE];
+    private static final Square[] SQUARES = new Square[SQUARE_COUNT];
 
     /** SQUARES viewed as a List. */
     private static final List<Square> SQUARE_LIST = Arrays.asList(SQUARES);
 
+    /** RAYS[k][d] is the value of SQUARES[k].ray(d). */
+    private static final Square[][][] RAYS = new Square[SQUARE_COUNT][][];
+
+    /** DIRECTION[j][k] is the direction of the queen move from square j
+     *  to square k, or -1 if there is no such move. */
+    private static final byte[][] DIRECTION =
+        new byte[SQUARE_COUNT][SQUARE_COUNT];
+
+    /** DISTANCE[j][k] is the number of king steps from square j to
+     *  square k. */
+    private static final byte[][] DISTANCE =
+        new byte[SQUARE_COUNT][SQUARE_COUNT];
+
+    /** Entry j * SQUARE_COUNT + k holds the low (resp. high) word of
+     *  the set of squares strictly between squares j and k. */
+    private static final long[]
+        BETWEEN_LO = new long[SQUARE_COUNT * SQUARE_COUNT],
+        BETWEEN_HI = new long[SQUARE_COUNT * SQUARE_COUNT];
+
     static {
-        for (int i = Board.SIZE * Board.SIZE - 1; i >= 0; i -= 1) {
+        for (int i = SQUARE_COUNT - 1; i >= 0; i -= 1) {
             SQUARES[i] = new Square(i);
         }
+        for (int from = 0; from < SQUARE_COUNT; from += 1) {
+            Square sq = SQUARES[from];
+            Arrays.fill(DIRECTION[from], (byte) -1);
+            for (int to = 0; to < SQUARE_COUNT; to += 1) {
+                Square other = SQUARES[to];
+                DISTANCE[from][to] = (byte) Math.max(
+                    Math.abs(other._col - sq._col),
+                    Math.abs(other._row - sq._row));
+            }
+            RAYS[from] = new Square[DIR.length][];
+            for (int dir = 0; dir < DIR.length; dir += 1) {
+                List<Square> ray = new ArrayList<>();
+                long lo = 0, hi = 0;
+                int col = sq._col + DIR[dir][0],
+                    row = sq._row + DIR[dir][1];
+                while (exists(col, row)) {
+                    int to = row * Board.SIZE + col;
+                    ray.add(SQUARES[to]);
+                    DIRECTION[from][to] = (byte) dir;
+                    BETWEEN_LO[from * SQUARE_COUNT + to] = lo;
+                    BETWEEN_HI[from * SQUARE_COUNT + to] = hi;
+                    lo |= Bitboard.bitLo(to);
+                    hi |= Bitboard.bitHi(to);
+                    col += DIR[dir][0];
+                    row += DIR[dir][1];
+                }
+                RAYS[from][dir] = ray.toArray(new Square[ray.size()]);
+            }
+        }
     }
 
     /** My index position. */
@@ -23,6 +23,11 @@ class TextPlayer extends Player {
         return new TextPlayer(piece, controller);
     }
 
+    @Override
+    boolean interactive() {
+        return true;
+    }
+
     @Override
     String myMove() {
         while (true) {
@@ -1,25 +1,52 @@
 package amazons;
 
-/** A Reporter that uses the standard output for messaeges and standard
- *  error for error messages.
+import java.io.PrintStream;
+
+/** A Reporter that uses one stream (by default the standard output) for
+ *  messages and another (by default the standard error) for error
+ *  messages.
  *  @author P. N. Hilfinger
  */
 class TextReporter implements Reporter {
 
+    /** A TextReporter writing to the standard output and error. */
+    TextReporter() {
+        this(System.out, System.err);
+    }
+
+    /** A TextReporter writing messages to OUT and error messages to
+     *  ERR. */
+    TextReporter(PrintStream out, PrintStream err) {
+        _out = out;
+        _err = err;
+    }
+
     @Override
     public void reportError(String fmt, Object... args) {
-        System.err.printf(fmt, args);
-        System.err.println();
+        _err.printf(fmt, args);
+        _err.println();
     }
 
     @Override
     public void reportNote(String fmt, Object... args) {
-        System.out.printf("* " + fmt, args);
-        System.out.println();
+        _out.printf("* " + fmt, args);
+        _out.println();
     }
 
     @Override
     public void reportMove(Move move) {
-        System.out.printf("* %s%n", move);
+        _out.printf("* %s%n", move);
     }
+
+    /** Print STATS for SIDE on my error stream, so that my output holds
+     *  only the game. */
+    @Override
+    public void reportSearchInfo(Piece side, SearchStats stats) {
+        _err.printf("%s %s%n", side, stats);
+    }
+
+    /** Destination of messages. */
+    private final PrintStream _out;
+    /** Destination of error messages. */
+    private final PrintStream _err;
 }
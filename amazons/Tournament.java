@@ -0,0 +1,418 @@
+package amazons;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.lang.Math.*;
+
+import static amazons.Piece.*;
+
+/** A match of many games between two automated players, played
+ *  concurrently without display, each under its own Controller.  Games
+ *  are played in pairs: both games of a pair start from the same
+ *  opening, chosen at random from a seed that depends only on the base
+ *  seed and the pair, and the players swap colours between them.  The
+ *  results give the first player's score, an estimate of its Elo
+ *  difference from the second player, and a sequential probability
+ *  ratio test (SPRT) of whether that difference is at least elo1 (H1)
+ *  or at most elo0 (H0).  The match stops early once the test accepts
+ *  either hypothesis.  There are no draws in Amazons, so each game is a
+ *  win for one player.
+ *  @author Yuan Xie.
+ */
+class Tournament {
+
+    /** A match of at most GAMES games between players made from the
+     *  templates FIRST and SECOND. */
+    Tournament(Player first, Player second, int games) {
+        _first = first;
+        _second = second;
+        _games = max(0, games);
+    }
+
+    /** Play up to THREADS games at once (at least 1). */
+    void setConcurrency(int threads) {
+        _concurrency = max(1, threads);
+    }
+
+    /** Derive the seed of each pair of games from SEED. */
+    void setSeed(long seed) {
+        _seed = seed;
+    }
+
+    /** Start each game with PLIES random moves. */
+    void setOpeningPlies(int plies) {
+        _openingPlies = max(0, plies);
+    }
+
+    /** Play each game with time limits of MOVETIME milliseconds per move
+     *  and GAMETIME milliseconds per game, as for
+     *  Controller.setTimeLimits. */
+    void setTimeLimits(long moveTime, long gameTime) {
+        _moveTime = moveTime;
+        _gameTime = gameTime;
+    }
+
+    /** Give each engine at most MILLIS milliseconds per move (none if
+     *  0), as for Controller.setMoveDeadline.  The games share one
+     *  executor for their players' moves. */
+    void setMoveDeadline(long millis) {
+        _moveDeadline = millis;
+    }
+
+    /** Test H0: elo <= ELO0 against H1: elo >= ELO1, with error
+     *  probabilities at most ALPHA (accepting H1 wrongly) and BETA
+     *  (accepting H0 wrongly). */
+    void setSprt(double elo0, double elo1, double alpha, double beta) {
+        if (elo0 >= elo1 || alpha <= 0 || alpha >= 1
+            || beta <= 0 || beta >= 1) {
+            throw Utils.error("bad SPRT parameters");
+        }
+        _elo0 = elo0;
+        _elo1 = elo1;
+        _lowerBound = log(beta / (1 - alpha));
+        _upperBound = log((1 - beta) / alpha);
+    }
+
+    /** Play the match, reporting progress and the result to REPORTER. */
+    void run(Reporter reporter) {
+        _reporter = reporter;
+        _nextGame.set(0);
+        _wins = _losses = 0;
+        _verdict = null;
+        long start = System.nanoTime();
+        ThreadPoolExecutor pool =
+            Utils.fixedPool("amazons-tournament", _concurrency);
+        _moveExecutor = Utils.cachedPool("amazons-tournament-move");
+        List<Future<?>> workers = new ArrayList<>();
+        for (int i = 0; i < _concurrency; i += 1) {
+            workers.add(pool.submit(this::playGames));
+        }
+        try {
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException excp) {
+            throw new IllegalStateException(excp.getCause());
+        } finally {
+            pool.shutdownNow();
+            _moveExecutor.shutdown();
+        }
+        reporter.reportNote("Finished %d games in %.1f s.", played(),
+                            (double) (System.nanoTime() - start)
+                            / Utils.NANOS_PER_SECOND);
+        reporter.reportNote("%s", summary());
+    }
+
+    /** Return the number of games won by the first player. */
+    synchronized int wins() {
+        return _wins;
+    }
+
+    /** Return the number of games lost by the first player. */
+    synchronized int losses() {
+        return _losses;
+    }
+
+    /** Return the number of games played. */
+    synchronized int played() {
+        return _wins + _losses;
+    }
+
+    /** Return the first player's score: the fraction of its games that
+     *  it won (0.5 before any game is played). */
+    synchronized double score() {
+        return score(_wins, _losses);
+    }
+
+    /** Return the estimated Elo difference between the first player and
+     *  the second (infinite if either has won every game). */
+    synchronized double elo() {
+        return elo(score());
+    }
+
+    /** Return the half-width of the 95% confidence interval of elo()
+     *  (infinite if either player has won every game). */
+    synchronized double eloMargin() {
+        int n = _wins + _losses;
+        if (_wins == 0 || _losses == 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double p = score();
+        double deviation = sqrt(p * (1 - p) / n);
+        return (elo(p + Z95 * deviation) - elo(p - Z95 * deviation)) / 2;
+    }
+
+    /** Return the log-likelihood ratio of H1 to H0 (see setSprt) given
+     *  the results so far. */
+    synchronized double llr() {
+        return llr(_wins, _losses, _elo0, _elo1);
+    }
+
+    /** Return "H1" or "H0" if the SPRT has accepted that hypothesis,
+     *  and otherwise null. */
+    synchronized String verdict() {
+        return _verdict;
+    }
+
+    /** Return a one-line summary of the results so far. */
+    synchronized String summary() {
+        return String.format("Score %d-%d (%.1f%%), Elo %+.1f +/- %.1f,"
+                             + " LLR %.2f [%.2f, %.2f]: %s",
+                             _wins, _losses, 100 * score(), elo(),
+                             eloMargin(), llr(), _lowerBound, _upperBound,
+                             _verdict == null ? "inconclusive"
+                             : _verdict + " accepted");
+    }
+
+    /** Return the score for WINS wins and LOSSES losses. */
+    static double score(int wins, int losses) {
+        int n = wins + losses;
+        return n == 0 ? 0.5 : (double) wins / n;
+    }
+
+    /** Return the Elo difference corresponding to an expected score of
+     *  SCORE. */
+    static double elo(double score) {
+        if (score <= 0) {
+            return Double.NEGATIVE_INFINITY;
+        } else if (score >= 1) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return -ELO_SCALE * log10(1 / score - 1);
+    }
+
+    /** Return the expected score of a player ELO points stronger than
+     *  its opponent. */
+    static double expectedScore(double elo) {
+        return 1 / (1 + pow(10, -elo / ELO_SCALE));
+    }
+
+    /** Return the log-likelihood ratio of the hypothesis that the Elo
+     *  difference is ELO1 to the hypothesis that it is ELO0, given WINS
+     *  wins and LOSSES losses. */
+    static double llr(int wins, int losses, double elo0, double elo1) {
+        double p0 = expectedScore(elo0), p1 = expectedScore(elo1);
+        return wins * log(p1 / p0) + losses * log((1 - p1) / (1 - p0));
+    }
+
+    /** Play games, claiming each from _nextGame, until all have been
+     *  claimed or the SPRT has reached a verdict. */
+    private void playGames() {
+        while (verdict() == null) {
+            int game = _nextGame.getAndIncrement();
+            if (game >= _games) {
+                return;
+            }
+            boolean firstIsWhite = game % 2 == 0;
+            Piece winner = playGame(_seed + game / 2, firstIsWhite);
+            record(winner == (firstIsWhite ? WHITE : BLACK));
+        }
+    }
+
+    /** Play one game from the opening given by SEED, with the first
+     *  player as White iff FIRSTISWHITE, and return the winner. */
+    private Piece playGame(long seed, boolean firstIsWhite) {
+        Referee referee =
+            new Referee(seed, _openingPlies, firstIsWhite);
+        Controller control =
+            new Controller(new NullView(), null, new GameReporter(),
+                           referee, _first);
+        control.addEngine(FIRST, _first);
+        control.addEngine(SECOND, _second);
+        control.setBatch(true);
+        control.setSeed(seed);
+        control.setTimeLimits(_moveTime, _gameTime);
+        if (_moveDeadline > 0) {
+            control.setMoveDeadline(_moveDeadline);
+            control.setMoveExecutor(_moveExecutor);
+        }
+        control.play();
+        return control.winner();
+    }
+
+    /** Record a win for the first player iff WON, report progress,
+     *  and check the SPRT. */
+    private synchronized void record(boolean won) {
+        if (won) {
+            _wins += 1;
+        } else {
+            _losses += 1;
+        }
+        if (_verdict == null) {
+            double llr = llr();
+            if (llr >= _upperBound) {
+                _verdict = "H1";
+            } else if (llr <= _lowerBound) {
+                _verdict = "H0";
+            }
+        }
+        if (played() % REPORT_INTERVAL == 0) {
+            _reporter.reportNote("%d games: %s", played(), summary());
+        }
+    }
+
+    /** A manual Player that referees one game of a tournament: it plays
+     *  the random opening for both sides, then hands each side to its
+     *  engine, and ends the game once it is won. */
+    private static class Referee extends Player {
+
+        /** A template for the referee of a game whose opening of PLIES
+         *  moves is chosen by a generator seeded with SEED, in which the
+         *  first player is White iff FIRSTISWHITE. */
+        Referee(long seed, int plies, boolean firstIsWhite) {
+            super(null, null);
+            _random = new Random(seed);
+            _plies = plies;
+            _firstIsWhite = firstIsWhite;
+            _moves = new int[Board.MAX_MOVES];
+        }
+
+        /** A Referee sharing the state of TEMPLATE, playing PIECE under
+         *  CONTROLLER. */
+        private Referee(Referee template, Piece piece,
+                        Controller controller) {
+            super(piece, controller);
+            _template = template;
+        }
+
+        @Override
+        Player create(Piece piece, Controller controller) {
+            return new Referee(this, piece, controller);
+        }
+
+        @Override
+        String myMove() {
+            return _template.next(board());
+        }
+
+        /** Return the next command of the game on BOARD. */
+        private String next(Board board) {
+            if (board.winner() != null) {
+                return "quit";
+            }
+            _step += 1;
+            if (_step == 1) {
+                return "manual black";
+            } else if (_step <= _plies + 1) {
+                int n = board.legalMoves(board.turn(), _moves);
+                return Move.toString(_moves[_random.nextInt(n)]);
+            } else if (_step == _plies + 2) {
+                return "auto white " + (_firstIsWhite ? FIRST : SECOND);
+            } else {
+                return "auto black " + (_firstIsWhite ? SECOND : FIRST);
+            }
+        }
+
+        /** The Referee whose state I share (this one for a template). */
+        private Referee _template = this;
+        /** Generator of the opening moves. */
+        private Random _random;
+        /** Number of opening moves. */
+        private int _plies;
+        /** True iff the first player is White. */
+        private boolean _firstIsWhite;
+        /** Number of commands issued so far. */
+        private int _step;
+        /** Buffer for legal moves. */
+        private int[] _moves;
+    }
+
+    /** A Reporter for one game of a tournament, which passes on only
+     *  errors. */
+    private class GameReporter implements Reporter {
+
+        @Override
+        public void reportError(String format, Object... args) {
+            synchronized (Tournament.this) {
+                _reporter.reportError(format, args);
+            }
+        }
+
+        @Override
+        public void reportNote(String format, Object... args) {
+        }
+
+        @Override
+        public void reportMove(Move move) {
+        }
+
+        @Override
+        public void reportSearchInfo(Piece side, SearchStats stats) {
+        }
+    }
+
+    /** Names of the two engines in each game's Controller. */
+    private static final String FIRST = "first", SECOND = "second";
+
+    /** Standard normal deviate for a 95% two-sided confidence
+     *  interval. */
+    private static final double Z95 = 1.959964;
+
+    /** Elo points per factor of 10 in the odds of winning. */
+    private static final double ELO_SCALE = 400;
+
+    /** Number of games between progress reports. */
+    private static final int REPORT_INTERVAL = 100;
+
+    /** Default number of random moves that start each game. */
+    static final int DEFAULT_OPENING_PLIES = 2;
+
+    /** Default probability of each kind of error of the SPRT. */
+    static final double DEFAULT_SPRT_ERROR = 0.05;
+
+    /** Templates for the two players. */
+    private final Player _first, _second;
+
+    /** Maximum number of games. */
+    private final int _games;
+
+    /** Number of games played at once. */
+    private int _concurrency = 1;
+
+    /** Base seed of the openings. */
+    private long _seed = 1;
+
+    /** Number of random moves that start each game. */
+    private int _openingPlies = DEFAULT_OPENING_PLIES;
+
+    /** Time limits of each game, in milliseconds. */
+    private long _moveTime = Controller.DEFAULT_MOVE_TIME,
+        _gameTime = Controller.DEFAULT_GAME_TIME;
+
+    /** Deadline for each move in milliseconds, or 0 for none. */
+    private long _moveDeadline;
+
+    /** Executor shared by the games for their players' moves. */
+    private ThreadPoolExecutor _moveExecutor;
+
+    /** SPRT hypotheses: the Elo difference is at most _elo0 (H0), or at
+     *  least _elo1 (H1). */
+    private double _elo0 = 0, _elo1 = 10;
+
+    /** The SPRT accepts H0 once the LLR falls to _lowerBound and H1
+     *  once it reaches _upperBound. */
+    private double _lowerBound =
+        log(DEFAULT_SPRT_ERROR / (1 - DEFAULT_SPRT_ERROR)),
+        _upperBound = log((1 - DEFAULT_SPRT_ERROR) / DEFAULT_SPRT_ERROR);
+
+    /** Number of the next game to be claimed. */
+    private final AtomicInteger _nextGame = new AtomicInteger();
+
+    /** Games won and lost by the first player. */
+    private int _wins, _losses;
+
+    /** The hypothesis accepted by the SPRT, or null. */
+    private String _verdict;
+
+    /** Reporter for progress and results. */
+    private Reporter _reporter;
+
+}
@@ -0,0 +1,45 @@
+package amazons;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/** Tests of the Tournament class.
+ *  @author Yuan Xie.
+ */
+public class TournamentTest {
+
+    @Test
+    public void testTournament() {
+        assertEquals(0.0, Tournament.elo(0.5), 1e-9);
+        assertEquals(100.0,
+                     Tournament.elo(Tournament.expectedScore(100)), 1e-9);
+        assertEquals(0.75, Tournament.score(3, 1), 1e-9);
+        assertEquals(0.0, Tournament.llr(0, 0, 0, 10), 1e-9);
+        assertTrue(Tournament.llr(60, 40, 0, 10) > 0);
+        assertTrue(Tournament.llr(40, 60, 0, 10) < 0);
+
+        MCTSPlayer mcts = new MCTSPlayer();
+        mcts.setPlayouts(20);
+        Tournament match = new Tournament(mcts, mcts, 4);
+        match.setConcurrency(2);
+        match.setOpeningPlies(4);
+        match.setSprt(0, 10, Tournament.DEFAULT_SPRT_ERROR,
+                      Tournament.DEFAULT_SPRT_ERROR);
+        PrintStream silent = new PrintStream(OutputStream.nullOutputStream());
+        match.run(new TextReporter(silent, silent));
+        assertEquals(4, match.played());
+        assertEquals(2, match.wins());
+        assertNull(match.verdict());
+        try {
+            match.setSprt(10, 0, 0.05, 0.05);
+            fail("accepted ELO0 > ELO1");
+        } catch (IllegalArgumentException excp) {
+            /* Expected. */
+        }
+    }
+
+}
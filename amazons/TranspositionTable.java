@@ -0,0 +1,153 @@
+package amazons;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+/** A fixed-size table of search results indexed by the Zobrist keys of
+ *  positions (see Board.hash).  Entries live in one flat buffer of
+ *  longs, either on the heap or (optionally) off-heap, so that the table
+ *  adds nothing for the garbage collector to trace.
+ *
+ *  The table may be shared by several search threads without locking.
+ *  Each entry is two longs: a data word (depth, bound type, score and
+ *  best move) and the position's key XORed with that data word.  A
+ *  reader accepts an entry only if the two words it reads XOR back to
+ *  the key it is looking for, so an entry torn by concurrent writers is
+ *  simply treated as a miss.
+ *  @author Yuan Xie.
+ */
+class TranspositionTable {
+
+    /** Bound type of a score that is the exact value of a position. */
+    static final int EXACT = 0;
+    /** Bound type of a score that is a lower bound on the value. */
+    static final int LOWER = 1;
+    /** Bound type of a score that is an upper bound on the value. */
+    static final int UPPER = 2;
+
+    /** The value returned by probe when there is no entry. */
+    static final long MISS = 0;
+
+    /** The default size of a table, in megabytes. */
+    static final int DEFAULT_MB = 16;
+
+    /** A table occupying about MEGABYTES megabytes (rounded down to a
+     *  power-of-two number of entries), allocated off the Java heap iff
+     *  OFFHEAP. */
+    TranspositionTable(int megabytes, boolean offHeap) {
+        long entries = Long.highestOneBit(
+            Math.max(1, (long) megabytes * (1 << 20) / ENTRY_BYTES));
+        entries = Math.max(BUCKET, Math.min(entries, MAX_ENTRIES));
+        int longs = (int) entries * 2;
+        if (offHeap) {
+            _table = ByteBuffer.allocateDirect(longs * Long.BYTES)
+                .order(ByteOrder.nativeOrder()).asLongBuffer();
+        } else {
+            _table = LongBuffer.wrap(new long[longs]);
+        }
+        _mask = longs - 2 * BUCKET;
+    }
+
+    /** Return the number of entries in this table. */
+    int capacity() {
+        return _table.capacity() / 2;
+    }
+
+    /** Remove all entries. */
+    void clear() {
+        for (int i = 0; i < _table.capacity(); i += 1) {
+            _table.put(i, 0);
+        }
+    }
+
+    /** Return the data word stored for the position with Zobrist key
+     *  KEY, or MISS if there is none.  Use depth, bound, score and move
+     *  to decode the result. */
+    long probe(long key) {
+        int k = slot(key);
+        for (int i = 0; i < BUCKET; i += 1, k += 2) {
+            long check = _table.get(k), data = _table.get(k + 1);
+            if ((check ^ data) == key && data != MISS) {
+                return data;
+            }
+        }
+        return MISS;
+    }
+
+    /** Record that the position with Zobrist key KEY, searched to DEPTH
+     *  levels, has a score SCORE of type BOUND (EXACT, LOWER, or UPPER)
+     *  and best move MOVE (packed, or 0 if none).  The first entry of each
+     *  bucket keeps the deepest result seen; the second is replaced
+     *  whenever the first is not. */
+    void store(long key, int depth, int bound, int score, int move) {
+        long data = ((long) score << SCORE_SHIFT)
+            | ((long) Math.min(depth + 1, DEPTH_MASK) << DEPTH_SHIFT)
+            | ((long) bound << BOUND_SHIFT)
+            | (move & MOVE_MASK);
+        int k = slot(key);
+        long old = _table.get(k + 1);
+        if (old == MISS || (_table.get(k) ^ old) == key
+            || depth(old) <= depth) {
+            write(k, key, data);
+        } else {
+            write(k + 2, key, data);
+        }
+    }
+
+    /** Return the search depth recorded in data word DATA. */
+    static int depth(long data) {
+        return (int) ((data >>> DEPTH_SHIFT) & DEPTH_MASK) - 1;
+    }
+
+    /** Return the bound type recorded in data word DATA. */
+    static int bound(long data) {
+        return (int) ((data >>> BOUND_SHIFT) & BOUND_MASK);
+    }
+
+    /** Return the score recorded in data word DATA. */
+    static int score(long data) {
+        return (int) (data >> SCORE_SHIFT);
+    }
+
+    /** Return the packed best move recorded in data word DATA (0 if
+     *  none). */
+    static int move(long data) {
+        return (int) (data & MOVE_MASK);
+    }
+
+    /** Return the index of the first long of the bucket for KEY. */
+    private int slot(long key) {
+        return (int) (key ^ (key >>> Integer.SIZE)) & _mask;
+    }
+
+    /** Write the entry for KEY with data word DATA at index K. */
+    private void write(int k, long key, long data) {
+        _table.put(k, key ^ data);
+        _table.put(k + 1, data);
+    }
+
+    /** Size of one entry in bytes. */
+    private static final int ENTRY_BYTES = 2 * Long.BYTES;
+    /** Number of entries examined for each key. */
+    private static final int BUCKET = 2;
+    /** Largest number of entries (limited by the int capacity of a
+     *  direct buffer). */
+    private static final long MAX_ENTRIES = 1 << 26;
+
+    /** Layout of a data word: the move occupies the low 21 bits, then
+     *  the bound type, then the depth + 1 (so that no valid data word is
+     *  MISS), and the score the upper 32 bits. */
+    private static final int MOVE_MASK = (1 << 21) - 1,
+        BOUND_SHIFT = 21, BOUND_MASK = 3,
+        DEPTH_SHIFT = 23, DEPTH_MASK = (1 << 8) - 1,
+        SCORE_SHIFT = 32;
+
+    /** The entries: long 2k is the check word and 2k + 1 the data word
+     *  of entry k. */
+    private final LongBuffer _table;
+
+    /** Mask that maps a hash to the first long of a bucket. */
+    private final int _mask;
+
+}
@@ -0,0 +1,29 @@
+package amazons;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/** Tests of the TranspositionTable class.
+ *  @author Yuan Xie.
+ */
+public class TranspositionTableTest {
+
+    @Test
+    public void testTranspositionTable() {
+        TranspositionTable table = new TranspositionTable(1, false);
+        long key = new Board().hash() ^ 12345;
+        assertEquals(TranspositionTable.MISS, table.probe(key));
+        int move = Move.mv("d1-d5(e5)").pack();
+        table.store(key, 3, TranspositionTable.LOWER, -77, move);
+        long entry = table.probe(key);
+        assertEquals(3, TranspositionTable.depth(entry));
+        assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(entry));
+        assertEquals(-77, TranspositionTable.score(entry));
+        assertEquals(move, TranspositionTable.move(entry));
+        assertEquals(TranspositionTable.MISS, table.probe(key + 1));
+        table.clear();
+        assertEquals(TranspositionTable.MISS, table.probe(key));
+    }
+
+}
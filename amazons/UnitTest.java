@@ -14,7 +14,11 @@ public class UnitTest {
     /** Run the JUnit tests in this package. Add xxxTest.class entries to
      *  the arguments of runClasses to run other JUnit tests. */
     public static void main(String[] ignored) {
-        textui.runClasses(UnitTest.class, BoardTest.class);
+        textui.runClasses(UnitTest.class, BoardTest.class,
+                          TranspositionTableTest.class, PNSolverTest.class,
+                          PerftTest.class, TournamentTest.class,
+                          GameServerTest.class, ControllerTest.class,
+                          AITest.class);
     }
 
     /** Tests basic correctness of put and get on the initialized board. */
@@ -41,6 +45,38 @@ public class UnitTest {
         assertTrue(Square.sq(7, 9).isQueenMove(Square.sq(0, 2)));
     }
 
+    /** Tests the precomputed direction, distance and ray tables. */
+    @Test
+    public void testSquareTables() {
+        assertEquals(1, Square.sq(1, 1).direction(Square.sq(9, 9)));
+        assertEquals(6, Square.sq(8, 7).direction(Square.sq(2, 7)));
+        assertEquals(8, Square.sq(1, 1).distance(Square.sq(9, 9)));
+        assertEquals(Square.sq(3, 4), Square.sq(3, 0).queenMove(0, 4));
+        assertNull(Square.sq(3, 0).queenMove(4, 1));
+        assertEquals(9, Square.sq(0, 0).ray(2).length);
+        assertEquals(0L, Square.sq(0, 0).betweenLo(Square.sq(5, 1)));
+        assertEquals(2, Long.bitCount(Square.sq(0, 0).betweenLo(
+                                          Square.sq(3, 3))));
+    }
+
+    /** Tests the terms of the static evaluator. */
+    @Test
+    public void testEvaluator() {
+        Evaluator eval = new Evaluator();
+        Board b = new Board();
+        assertEquals(0, eval.mobility(b));
+        assertEquals(0, eval.blockedAmazons(b));
+        assertEquals(0, eval.queenTerritory(b) % Evaluator.TERRITORY_UNIT);
+        assertTrue(eval.queenTerritory(b) >= 0);
+        makeSmile(b);
+        b.put(BLACK, Square.sq(7, 7));
+        assertEquals(1, eval.blockedAmazons(b));
+        assertTrue(eval.queenTerritory(b) > 0);
+        assertTrue(eval.kingTerritory(b) > 0);
+        assertTrue(eval.mobility(b) > 0);
+        assertTrue(eval.evaluate(b) > 0);
+    }
+
     /** Tests toString for initial board state and a smiling board state. :) */
     @Test
     public void testToString() {
@@ -3,12 +3,24 @@ package amazons;
 import java.io.InputStream;
 import java.io.IOException;
 import java.util.Iterator;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /** Miscellaneous utilties.
  *  @author P. N. Hilfinger */
 
 class Utils {
 
+    /** Nanoseconds in a second, millisecond, and microsecond. */
+    static final long NANOS_PER_SECOND = 1000000000L,
+        NANOS_PER_MILLI = 1000000, NANOS_PER_MICRO = 1000;
+
+    /** Milliseconds in a second. */
+    static final long MILLIS_PER_SECOND = 1000;
+
     /** Return an exception indicating some kind of error.  MSG and ARGS
      *  are as for String.format and define a message string. */
     static IllegalArgumentException error(String msg, Object... args) {
@@ -39,4 +51,40 @@ class Utils {
         return result;
     }
 
+    /** Return a pool of at most THREADS threads named NAME, for work
+     *  submitted faster than it is done (which waits in a queue).  Its
+     *  threads are daemons and expire when idle. */
+    static ThreadPoolExecutor fixedPool(String name, int threads) {
+        ThreadPoolExecutor pool =
+            new ThreadPoolExecutor(threads, threads, POOL_KEEP_ALIVE,
+                                   TimeUnit.SECONDS,
+                                   new LinkedBlockingQueue<>(),
+                                   daemonThreads(name));
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /** Return a pool of threads named NAME that starts a new thread for
+     *  each task submitted while the others are busy.  As for fixedPool,
+     *  the threads are daemons that expire when idle. */
+    static ThreadPoolExecutor cachedPool(String name) {
+        return new ThreadPoolExecutor(0, Integer.MAX_VALUE, POOL_KEEP_ALIVE,
+                                      TimeUnit.SECONDS,
+                                      new SynchronousQueue<>(),
+                                      daemonThreads(name));
+    }
+
+    /** Return a factory for daemon threads named NAME. */
+    private static ThreadFactory daemonThreads(String name) {
+        return r -> {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /** Seconds that an idle thread of a pool from fixedPool or
+     *  cachedPool is kept for reuse. */
+    private static final long POOL_KEEP_ALIVE = 1;
+
 }
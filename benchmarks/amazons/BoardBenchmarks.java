@@ -0,0 +1,124 @@
+package amazons;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Benchmarks of the Board operations used in play and in search:
+ *  copying, making and unmaking moves, and generating moves.
+ *  @author Yuan Xie.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmarks {
+
+    /** The name of the position benchmarked (see Positions). */
+    @Param({ "opening", "middlegame", "endgame" })
+    public String position;
+
+    /** Set up the position and a legal move from it. */
+    @Setup
+    public void setup() {
+        _board = Positions.board(position);
+        _copy = new Board();
+        _buffer = new int[Board.MAX_MOVES];
+        int n = _board.legalMoves(_board.turn(), _buffer);
+        _packed = _buffer[n / 2];
+        _move = Move.mv(_packed);
+        _amazons = new Square[4];
+        int k = 0;
+        for (int i = 0; i < Board.SIZE * Board.SIZE; i += 1) {
+            if (_board.get(Square.sq(i)) == _board.turn()) {
+                _amazons[k] = Square.sq(i);
+                k += 1;
+            }
+        }
+    }
+
+    /** Copy the position into an existing Board. */
+    @Benchmark
+    public Board copy() {
+        _copy.copy(_board);
+        return _copy;
+    }
+
+    /** Make a move as the Controller does, and undo it. */
+    @Benchmark
+    public int makeMoveUndo() {
+        _board.makeMove(_move);
+        _board.undo();
+        return _board.numMoves();
+    }
+
+    /** Make a packed move as the search does, and unmake it. */
+    @Benchmark
+    public long makeSearchMove() {
+        _board.makeSearchMove(_packed);
+        long hash = _board.hash();
+        _board.unmakeSearchMove();
+        return hash;
+    }
+
+    /** Enumerate the legal moves as Move objects. */
+    @Benchmark
+    public void legalMovesIterator(Blackhole hole) {
+        Iterator<Move> moves = _board.legalMoves();
+        for (Move move = moves.next(); move != null; move = moves.next()) {
+            hole.consume(move);
+        }
+    }
+
+    /** Generate the legal moves in packed form. */
+    @Benchmark
+    public int legalMovesBuffer() {
+        return _board.legalMoves(_board.turn(), _buffer);
+    }
+
+    /** Count the legal moves without generating them. */
+    @Benchmark
+    public int numLegalMoves() {
+        return _board.numLegalMoves(_board.turn());
+    }
+
+    /** Enumerate the squares reachable from each amazon of the side to
+     *  move. */
+    @Benchmark
+    public void reachableFrom(Blackhole hole) {
+        for (Square from : _amazons) {
+            Iterator<Square> to = _board.reachableFrom(from, null);
+            for (Square s = to.next(); s != null; s = to.next()) {
+                hole.consume(s);
+            }
+        }
+    }
+
+    /** The benchmarked position. */
+    private Board _board;
+    /** A Board to copy into. */
+    private Board _copy;
+    /** A move buffer. */
+    private int[] _buffer;
+    /** A legal move from _board, packed. */
+    private int _packed;
+    /** _packed as a Move. */
+    private Move _move;
+    /** The squares of the amazons of the side to move. */
+    private Square[] _amazons;
+
+}
@@ -0,0 +1,65 @@
+package amazons;
+
+/** The positions on which the benchmarks run, each given as the moves
+ *  that reach it from the initial position.  All come from one game
+ *  between two copies of the AI: the opening after 4 moves, the
+ *  middlegame after 30 (when the board starts to break up), and the
+ *  endgame after 60 (when most of the board is already partitioned).
+ *  @author Yuan Xie.
+ */
+final class Positions {
+
+    /** Not instantiable. */
+    private Positions() {
+    }
+
+    /** Return a new Board in the position called NAME ("opening",
+     *  "middlegame", or "endgame"). */
+    static Board board(String name) {
+        String moves;
+        switch (name) {
+        case "opening":
+            moves = OPENING;
+            break;
+        case "middlegame":
+            moves = MIDDLEGAME;
+            break;
+        case "endgame":
+            moves = ENDGAME;
+            break;
+        default:
+            throw Utils.error("unknown position: %s", name);
+        }
+        Board board = new Board();
+        for (String move : moves.split(" ")) {
+            board.makeMove(Move.mv(move));
+        }
+        return board;
+    }
+
+    /** Moves to the opening position. */
+    private static final String OPENING =
+        "g1-g7(d7) j7-g4(b4) d1-f3(h3) d10-f8(f6)";
+
+    /** Moves to the middlegame position. */
+    private static final String MIDDLEGAME =
+        "g1-g7(d7) j7-g4(b4) d1-f3(h3) d10-f8(f6) a4-a6(e10) g10-i8(g8) "
+        + "g7-e7(i7) i8-d3(d6) e7-c9(a9) a7-c5(j5) f3-e4(e8) f8-e9(i5) "
+        + "j4-h4(g3) g4-h5(f5) e4-e2(c2) c5-g1(f2) a6-c4(c3) d3-d5(e4) "
+        + "h4-g5(c1) d5-a8(d5) c4-c7(a7) a8-c6(c4) c7-b6(b5) c6-c8(d8) "
+        + "b6-b7(c7) e9-g7(e9) g5-h6(g6) g7-h7(g7) e2-f3(d1) h5-g5(h5)";
+
+    /** Moves to the endgame position. */
+    private static final String ENDGAME =
+        "g1-g7(d7) j7-g4(b4) d1-f3(h3) d10-f8(f6) a4-a6(e10) g10-i8(g8) "
+        + "g7-e7(i7) i8-d3(d6) e7-c9(a9) a7-c5(j5) f3-e4(e8) f8-e9(i5) "
+        + "j4-h4(g3) g4-h5(f5) e4-e2(c2) c5-g1(f2) a6-c4(c3) d3-d5(e4) "
+        + "h4-g5(c1) d5-a8(d5) c4-c7(a7) a8-c6(c4) c7-b6(b5) c6-c8(d8) "
+        + "b6-b7(c7) e9-g7(e9) g5-h6(g6) g7-h7(g7) e2-f3(d1) h5-g5(h5) "
+        + "f3-f4(j4) g5-g4(g5) h6-j6(h6) h7-i6(j7) f4-e5(f4) i6-h7(i6) "
+        + "e5-e7(e5) h7-h10(f8) c9-c10(b9) c8-c9(b10) b7-b6(b8) c9-d9(c9) "
+        + "b6-a6(c8) g4-e2(d2) a6-b6(e3) e2-d3(d4) c10-d10(c10) d3-e2(d3) "
+        + "b6-a6(a1) g1-h1(j1) a6-a2(b1) e2-g4(e2) a2-a6(a2) g4-i4(i1) "
+        + "a6-a3(b2) i4-i3(j2) a3-a6(a3) h1-g2(h1) a6-b6(c5) g2-f1(e1)";
+
+}
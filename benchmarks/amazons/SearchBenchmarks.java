@@ -0,0 +1,68 @@
+package amazons;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks of position evaluation and of fixed-depth search by the
+ *  AI on a single thread.  Fixed-depth searches start from an empty
+ *  transposition table, so every call does the same work.
+ *  @author Yuan Xie.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmarks {
+
+    /** The name of the position benchmarked (see Positions). */
+    @Param({ "opening", "middlegame", "endgame" })
+    public String position;
+
+    /** The depth of the searches by findMove. */
+    @Param({ "1", "2" })
+    public int depth;
+
+    /** Set up the position and an AI to move in it. */
+    @Setup
+    public void setup() {
+        _board = Positions.board(position);
+        _evaluator = new Evaluator();
+        AI template = new AI();
+        template.setFixedDepth(depth);
+        _ai = (AI) template.create(_board.turn(), null);
+    }
+
+    /** Evaluate the position. */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int staticScore() {
+        return AI.staticScore(_board, _evaluator);
+    }
+
+    /** Choose a move by fixed-depth search. */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Move findMove() {
+        return _ai.findMove(_board);
+    }
+
+    /** The benchmarked position. */
+    private Board _board;
+    /** The evaluator used by staticScore. */
+    private Evaluator _evaluator;
+    /** An AI whose turn it is in _board. */
+    private AI _ai;
+
+}
@@ -0,0 +1,110 @@
+package amazons;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Benchmarks of the geometry of Squares and of the parsing and
+ *  printing of Moves.  Each runs over a whole set of inputs, so the
+ *  times are per set, not per call.
+ *  @author Yuan Xie.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SquareBenchmarks {
+
+    /** Collect the queen moves and the text of the legal moves in the
+     *  middlegame position. */
+    @Setup
+    public void setup() {
+        List<Square> from = new ArrayList<>(), to = new ArrayList<>();
+        for (int i = 0; i < SQUARES; i += 1) {
+            for (int j = 0; j < SQUARES; j += 1) {
+                if (Square.sq(i).isQueenMove(Square.sq(j))) {
+                    from.add(Square.sq(i));
+                    to.add(Square.sq(j));
+                }
+            }
+        }
+        _from = from.toArray(new Square[from.size()]);
+        _to = to.toArray(new Square[to.size()]);
+
+        Board board = Positions.board("middlegame");
+        _packed = new int[Board.MAX_MOVES];
+        int n = board.legalMoves(board.turn(), _packed);
+        _packed = Arrays.copyOf(_packed, n);
+        _text = new String[n];
+        for (int i = 0; i < n; i += 1) {
+            _text[i] = Move.toString(_packed[i]);
+        }
+    }
+
+    /** Test every pair of squares for a queen move. */
+    @Benchmark
+    public int isQueenMove() {
+        int count = 0;
+        for (int i = 0; i < SQUARES; i += 1) {
+            Square from = Square.sq(i);
+            for (int j = 0; j < SQUARES; j += 1) {
+                if (from.isQueenMove(Square.sq(j))) {
+                    count += 1;
+                }
+            }
+        }
+        return count;
+    }
+
+    /** Find the direction of every queen move. */
+    @Benchmark
+    public int direction() {
+        int sum = 0;
+        for (int i = 0; i < _from.length; i += 1) {
+            sum += _from[i].direction(_to[i]);
+        }
+        return sum;
+    }
+
+    /** Parse the text of every legal move in the middlegame. */
+    @Benchmark
+    public void parseMoves(Blackhole hole) {
+        for (String text : _text) {
+            hole.consume(Move.mv(text));
+        }
+    }
+
+    /** Print every legal move in the middlegame. */
+    @Benchmark
+    public void printMoves(Blackhole hole) {
+        for (int move : _packed) {
+            hole.consume(Move.mv(move).toString());
+        }
+    }
+
+    /** The number of squares. */
+    private static final int SQUARES = Board.SIZE * Board.SIZE;
+
+    /** The queen moves, as _from[k]-_to[k]. */
+    private Square[] _from, _to;
+    /** Legal moves in the middlegame, packed. */
+    private int[] _packed;
+    /** The text of each of _packed. */
+    private String[] _text;
+
+}